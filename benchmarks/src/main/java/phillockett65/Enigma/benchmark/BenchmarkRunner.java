@@ -0,0 +1,48 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BenchmarkRunner is the entry point of benchmarks.jar. It runs the selected
+ * benchmarks (all by default) with the GC profiler enabled so that any per
+ * character allocations are visible. Any JMH command line options may be
+ * given, e.g. "java -jar benchmarks.jar EngineBenchmark -p wheels=4".
+ */
+package phillockett65.Enigma.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,161 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EngineBenchmark measures the headless translation hot path for 3 and 4
+ * wheel configurations, both per letter and in bulk, plus the construction
+ * costs paid at lockdown.
+ */
+package phillockett65.Enigma.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import phillockett65.Enigma.Catalogue;
+import phillockett65.Enigma.CompiledTable;
+import phillockett65.Enigma.Configuration;
+import phillockett65.Enigma.Engine;
+import phillockett65.Enigma.Mapper;
+import phillockett65.Enigma.Pairs;
+import phillockett65.Enigma.Rotor;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final int LENGTH = 64 * 1024;
+
+    @Param({ "3", "4" })
+    public int wheels;
+
+    @Param({ "false", "true" })
+    public boolean compiled;
+
+    private Configuration config;
+    private Engine engine;
+    private Rotor rotor;
+    private int[] plugboardMap;
+    private Pairs plugs;
+
+    private char[] chars;
+    private byte[] bytes;
+    private String text;
+    private int letter = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        config = new Configuration();
+        config.setWheels(wheels == 4 ? "Beta II IV I" : "II IV I");
+        config.setRingSettings(wheels == 4 ? "A B C D" : "B C D");
+        config.setRotorOffsets(wheels == 4 ? "A G Q Z" : "G Q Z");
+        config.setPlugs("AT BS DE FM IR KN LZ OW PV XY");
+
+        engine = config.buildEngine();
+        if (compiled)
+            engine.setCompiled(CompiledTable.get(engine));
+
+        rotor = new Rotor(Catalogue.getRotor("IV"), 5);
+        plugboardMap = config.getPlugboardMap();
+
+        plugs = new Pairs(true);
+        plugs.setLinks(config.getPlugText());
+
+        Random random = new Random(42);
+        chars = new char[LENGTH];
+        bytes = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; ++i) {
+            chars[i] = (char)('A' + random.nextInt(26));
+            bytes[i] = (byte)chars[i];
+        }
+        text = new String(chars);
+    }
+
+    @Benchmark
+    public int translate() {
+        letter = (letter == 25) ? 0 : letter + 1;
+        return engine.translate(letter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public char[] bulkChars() {
+        engine.translate(chars, 0, chars, 0, LENGTH);
+        return chars;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public byte[] bulkBytes() {
+        engine.translate(bytes, 0, bytes, 0, LENGTH);
+        return bytes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public char[] bulkCharSequence() {
+        engine.translate(text, chars, 0);
+        return chars;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(26 * 26)
+    public void rotorSwap(Blackhole blackhole) {
+        for (int offset = 0; offset < 26; ++offset) {
+            rotor.setOffset(offset);
+            for (int index = 0; index < 26; ++index)
+                blackhole.consume(rotor.swap(Mapper.RIGHT_TO_LEFT, index));
+        }
+    }
+
+    @Benchmark
+    public Mapper mapperConstruction() {
+        return new Mapper("Plugboard", plugboardMap);
+    }
+
+    @Benchmark
+    public int[] pairsGetMap() {
+        return plugs.getMap();
+    }
+
+    @Benchmark
+    public Engine buildEngine() {
+        return config.buildEngine();
+    }
+
+}
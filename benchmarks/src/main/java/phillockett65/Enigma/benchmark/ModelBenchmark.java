@@ -0,0 +1,106 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ModelBenchmark measures the GUI facing Model, including the spinner
+ * refresh done after each key press. The Model owns JavaFX controls, so the
+ * JavaFX toolkit is started first, which needs a display.
+ */
+package phillockett65.Enigma.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.application.Platform;
+import phillockett65.Enigma.Model;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    private static final int LENGTH = 64 * 1024;
+
+    @Param({ "3", "4" })
+    public int wheels;
+
+    private Model model;
+    private char[] chars;
+    private int letter = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        try {
+            Platform.startup(() -> {});
+        } catch (IllegalStateException e) {
+            // Toolkit already running.
+        }
+
+        model = new Model();
+        model.defaultSettings();
+        model.setFourthWheel(wheels == 4);
+        model.setEncipher(true);
+
+        Random random = new Random(42);
+        chars = new char[LENGTH];
+        for (int i = 0; i < LENGTH; ++i)
+            chars[i] = (char)('A' + random.nextInt(26));
+    }
+
+    @Benchmark
+    public int translate() {
+        letter = (letter == 25) ? 0 : letter + 1;
+        return model.translate(letter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public char[] bulkChars() {
+        model.translate(chars, 0, chars, 0, LENGTH);
+        return chars;
+    }
+
+    /**
+     * setEncipher(true) performs lockdownSettings().
+     */
+    @Benchmark
+    public Model lockdownSettings() {
+        model.setEncipher(true);
+        return model;
+    }
+
+}
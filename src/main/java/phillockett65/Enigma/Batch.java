@@ -0,0 +1,273 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Batch is the non-GUI entry point that translates a file, either in place or
+ * to a new file. The input is memory mapped a window at a time and translated
+ * through a small block buffer, so heap use is bounded regardless of the file
+ * size. Settings are taken from "Settings.dat" (or the given settings file)
+ * and may be overridden on the command line.
+ */
+package phillockett65.Enigma;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+public class Batch {
+
+    private static final long WINDOW = 64L * 1024 * 1024;
+    private static final int BLOCK = 64 * 1024;
+
+    private final Engine engine;
+    private final boolean strip;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param engine positioned at the start of the input.
+     * @param strip remove non-letters if true, pass them through otherwise.
+     */
+    public Batch(Engine engine, boolean strip) {
+        this.engine = engine;
+        this.strip = strip;
+    }
+
+
+    /************************************************************************
+     * Translation support code.
+     */
+
+    /**
+     * Remove non-letters from a block of translated bytes.
+     * @param block of bytes.
+     * @param length number of valid bytes in block.
+     * @return the number of bytes remaining.
+     */
+    private static int stripBlock(byte[] block, int length) {
+        int count = 0;
+        for (int i = 0; i < length; ++i) {
+            final byte b = block[i];
+            if ((b >= 'A') && (b <= 'Z'))
+                block[count++] = b;
+        }
+
+        return count;
+    }
+
+    /**
+     * Translate the input channel to the output channel, which may be the
+     * same channel for an in place translation.
+     * @param input channel opened for reading.
+     * @param output channel opened for writing.
+     * @return the number of bytes written.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long translate(FileChannel input, FileChannel output) throws IOException {
+        final long size = input.size();
+        byte[] block = new byte[BLOCK];
+        long readPos = 0;
+        long writePos = 0;
+
+        while (readPos < size) {
+            final long windowSize = Math.min(WINDOW, size - readPos);
+            MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, readPos, windowSize);
+
+            while (window.hasRemaining()) {
+                int length = Math.min(BLOCK, window.remaining());
+                window.get(block, 0, length);
+
+                engine.translate(block, 0, block, 0, length);
+                if (strip)
+                    length = stripBlock(block, length);
+
+                // Writes never overtake reads, so in place translation is safe.
+                ByteBuffer buffer = ByteBuffer.wrap(block, 0, length);
+                while (buffer.hasRemaining())
+                    writePos += output.write(buffer, writePos);
+            }
+
+            readPos += windowSize;
+        }
+
+        if (output.size() > writePos)
+            output.truncate(writePos);
+
+        return writePos;
+    }
+
+    /**
+     * Translate a file in place.
+     * @param file to translate.
+     * @return the number of bytes written.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long translate(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return translate(channel, channel);
+        }
+    }
+
+    /**
+     * Translate a file to a new file. If the target is the source file, 
+     * under any name, it is translated in place instead, as truncating the 
+     * target would otherwise destroy the source before it is read.
+     * @param source file to translate.
+     * @param target file to create or replace.
+     * @return the number of bytes written.
+     * @throws IOException if an I/O error occurs.
+     */
+    public long translate(Path source, Path target) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(source, target))
+            return translate(source);
+
+        try (FileChannel input = FileChannel.open(source, StandardOpenOption.READ);
+            FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return translate(input, output);
+        }
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: Batch [options] input [output]");
+        System.err.println("Translates input to output, or in place if no output is given.");
+        System.err.println("  -s file        settings file (default " + Model.DATAFILE + " if present)");
+        System.err.println("  -r id          reflector, e.g. \"Reflector B\"");
+        System.err.println("  -p \"AB CD ..\"  reconfigurable reflector pairs");
+        System.err.println("  -w \"I II III\"  wheel order, 4 wheels selects the fourth wheel");
+        System.err.println("  -g \"A B C\"     ring settings as letters or numbers");
+        System.err.println("  -o \"A B C\"     rotor offsets as letters or numbers");
+        System.err.println("  -b \"AB CD ..\"  plugboard pairs");
+        System.err.println("  -x             strip non-letters instead of passing them through");
+        System.err.println("  -c             use compiled mode");
+        System.err.println("  -j             use a generated pipeline specialized for the settings");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        String settings = null;
+        String input = null;
+        String output = null;
+        boolean strip = false;
+        boolean compiled = false;
+        boolean specialized = false;
+        ArrayList<String[]> overrides = new ArrayList<String[]>();
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-s": settings = args[++i]; break;
+                case "-x": strip = true; break;
+                case "-c": compiled = true; break;
+                case "-j": specialized = true; break;
+                case "-r": case "-p": case "-w": case "-g": case "-o": case "-b":
+                    overrides.add(new String[] { arg, args[++i] });
+                    break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    if (input == null)
+                        input = arg;
+                    else if (output == null)
+                        output = arg;
+                    else
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        if (input == null) {
+            usage();
+            System.exit(1);
+        }
+
+        if ((settings == null) && (new File(Model.DATAFILE).exists()))
+            settings = Model.DATAFILE;
+
+        try {
+            Configuration config = new Configuration();
+            if (settings != null) {
+                config = DataStore.readConfiguration(settings);
+                if (config == null)
+                    throw new IllegalArgumentException("Unable to read settings: " + settings);
+            }
+
+            for (String[] override : overrides) {
+                final String value = override[1];
+                switch (override[0]) {
+                case "-r": config.setReflectorChoice(value); config.setReconfigurable(false); break;
+                case "-p": config.setReflectorPairs(value); break;
+                case "-w": config.setWheels(value); break;
+                case "-g": config.setRingSettings(value); break;
+                case "-o": config.setRotorOffsets(value); break;
+                case "-b": config.setPlugs(value); break;
+                }
+            }
+
+            Engine engine = config.buildEngine();
+            if (specialized)
+                engine.setPipeline(PipelineCompiler.compile(config.buildSpec()));
+            if (compiled)
+                engine.setCompiled(CompiledTable.get(engine));
+
+            Batch batch = new Batch(engine, strip);
+            if (output == null)
+                batch.translate(Paths.get(input));
+            else
+                batch.translate(Paths.get(input), Paths.get(output));
+
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
@@ -0,0 +1,315 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Bombe is a class that simulates the Turing-Welchman Bombe. A crib (a guess
+ * of some plain text) is aligned with the cipher text to give a menu, a graph
+ * whose nodes are letters and whose edges are the key presses that connect a
+ * crib letter to a cipher letter. For every wheel order, and every start
+ * position with the ring settings at A, the stecker partner of the test letter
+ * is hypothesised and the consequences are propagated through the menu, with
+ * the diagonal board applying the symmetry of the plugboard. Positions where
+ * the hypothesis does not light every letter are reported as stops. Wheel
+ * orders are searched in parallel.
+ */
+package phillockett65.Enigma;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class Bombe {
+
+    private static final int ALL = (1 << 26) - 1;
+
+    private final int[] crib;
+    private final int[] cipher;
+    private final int offset;
+    private final String reflector;
+    private final List<String> wheels;
+
+    private final int testLetter;
+    private final int[][] edgeOther;    // Letter at the far end of each edge.
+    private final int[][] edgeStep;     // Key press of each edge in the crib.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param cipherText intercepted message, non-letters are ignored.
+     * @param cribText guessed plain text, non-letters are ignored.
+     * @param offset letter position of the crib in the cipher text.
+     * @param reflector id of the Reflector.
+     * @param wheels ids of the Rotors available.
+     * @throws IllegalArgumentException if the crib does not fit the cipher
+     * text at the given offset or any crib letter would encipher to itself.
+     */
+    public Bombe(String cipherText, String cribText, int offset, String reflector, List<String> wheels) {
+        this.cipher = Mapper.lettersToIndices(cipherText);
+        this.crib = Mapper.lettersToIndices(cribText);
+        this.offset = offset;
+        this.reflector = reflector;
+        this.wheels = wheels;
+
+        if (Catalogue.getReflector(reflector) == null)
+            throw new IllegalArgumentException("Unknown reflector: " + reflector);
+
+        if ((crib.length == 0) || (offset < 0) || (offset + crib.length > cipher.length))
+            throw new IllegalArgumentException("Crib does not fit the cipher text at offset " + offset);
+
+        for (int i = 0; i < crib.length; ++i)
+            if (crib[i] == cipher[offset + i])
+                throw new IllegalArgumentException("Crib letter enciphers to itself at offset " + (offset + i));
+
+        // Build the menu, each key press links a crib and a cipher letter.
+        int[] counts = new int[26];
+        for (int i = 0; i < crib.length; ++i) {
+            counts[crib[i]]++;
+            counts[cipher[offset + i]]++;
+        }
+
+        edgeOther = new int[26][];
+        edgeStep = new int[26][];
+        int best = 0;
+        for (int letter = 0; letter < 26; ++letter) {
+            edgeOther[letter] = new int[counts[letter]];
+            edgeStep[letter] = new int[counts[letter]];
+            if (counts[letter] > counts[best])
+                best = letter;
+            counts[letter] = 0;
+        }
+        testLetter = best;
+
+        for (int i = 0; i < crib.length; ++i) {
+            final int a = crib[i];
+            final int b = cipher[offset + i];
+            edgeOther[a][counts[a]] = b;
+            edgeStep[a][counts[a]++] = i;
+            edgeOther[b][counts[b]] = a;
+            edgeStep[b][counts[b]++] = i;
+        }
+    }
+
+    /**
+     * Constructor using Reflector B and Rotors I to V.
+     * @param cipherText intercepted message, non-letters are ignored.
+     * @param cribText guessed plain text, non-letters are ignored.
+     * @param offset letter position of the crib in the cipher text.
+     */
+    public Bombe(String cipherText, String cribText, int offset) {
+        this(cipherText, cribText, offset, WheelOrders.DEFAULT_REFLECTOR, Arrays.asList(WheelOrders.DEFAULT_WHEELS));
+    }
+
+    public int getTestLetter() { return testLetter; }
+
+
+    /************************************************************************
+     * Search support code.
+     */
+
+    /**
+     * Working storage for testing a single wheel order.
+     */
+    private class Scrambler {
+        private final CompiledTable table;
+        private final int[] states = new int[crib.length];
+        private final int[] wires = new int[26];        // Bit mask of live wires per letter.
+        private final int[] queue = new int[26 * 26];   // Pending wires as (letter * 26 + wire).
+        private int head;
+        private int tail;
+
+        public Scrambler(CompiledTable table) { this.table = table; }
+
+        /**
+         * Calculate the positions used by each key press of the crib.
+         * @param start index of the positions before the first key press.
+         */
+        public void setStart(int start) {
+            int state = start;
+            for (int i = 0; i < offset; ++i)
+                state = table.next(state);
+
+            for (int i = 0; i < crib.length; ++i) {
+                state = table.next(state);
+                states[i] = state;
+            }
+        }
+
+        /**
+         * Make a wire live, along with its partner on the diagonal board.
+         * @param letter of the register.
+         * @param wire of the register.
+         */
+        private void light(int letter, int wire) {
+            if ((wires[letter] & (1 << wire)) != 0)
+                return;
+
+            wires[letter] |= 1 << wire;
+            queue[tail++] = letter * 26 + wire;
+
+            if (letter != wire) {
+                wires[wire] |= 1 << letter;
+                queue[tail++] = wire * 26 + letter;
+            }
+        }
+
+        /**
+         * Hypothesise that the test letter is steckered to A and propagate
+         * the current through the menu until it settles.
+         * @return bit mask of the live wires of the test letter.
+         */
+        public int test() {
+            Arrays.fill(wires, 0);
+            head = 0;
+            tail = 0;
+
+            light(testLetter, 0);
+            while (head < tail) {
+                final int entry = queue[head++];
+                final int letter = entry / 26;
+                final int wire = entry % 26;
+
+                final int[] others = edgeOther[letter];
+                final int[] steps = edgeStep[letter];
+                for (int i = 0; i < others.length; ++i)
+                    light(others[i], table.translate(states[steps[i]], wire));
+
+                if (wires[testLetter] == ALL)
+                    break;
+            }
+
+            return wires[testLetter];
+        }
+    }
+
+    /**
+     * Test every start position of a wheel order.
+     * @param order left, middle and right Rotor ids.
+     * @return the stops found.
+     */
+    public ArrayList<BombeStop> search(String[] order) {
+        Engine engine = WheelOrders.buildEngine(Mapper.initThroughMap(26), reflector, order, new int[3]);
+        Scrambler scrambler = new Scrambler(CompiledTable.build(engine));
+        ArrayList<BombeStop> stops = new ArrayList<BombeStop>();
+
+        for (int start = 0; start < CompiledTable.STATES; ++start) {
+            scrambler.setStart(start);
+            final int live = scrambler.test();
+            if (live == ALL)
+                continue;
+
+            // A single live wire is the stecker partner, otherwise the 
+            // hypothesis is wrong and the dead wires are the candidates.
+            final int steckers = (Integer.bitCount(live) == 1) ? live : ALL & ~live;
+            stops.add(new BombeStop(order, start, testLetter, steckers));
+        }
+
+        return stops;
+    }
+
+    /**
+     * Test every wheel order in parallel.
+     * @return the stops found, in wheel order then position order.
+     */
+    public List<BombeStop> run() {
+        return WheelOrders.orders(wheels).parallelStream()
+            .flatMap(order -> search(order).stream())
+            .collect(Collectors.toList());
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: Bombe [options] ciphertext crib [offset]");
+        System.err.println("Searches for the wheel order and start positions of a message.");
+        System.err.println("  -f             ciphertext is the name of a file holding the message");
+        System.err.println("  -r id          reflector (default \"" + WheelOrders.DEFAULT_REFLECTOR + "\")");
+        System.err.println("  -w \"I II III\"  rotors available (default \"" + String.join(" ", WheelOrders.DEFAULT_WHEELS) + "\")");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        String reflector = WheelOrders.DEFAULT_REFLECTOR;
+        List<String> wheels = Arrays.asList(WheelOrders.DEFAULT_WHEELS);
+        boolean file = false;
+        int offset = 0;
+        ArrayList<String> values = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-f": file = true; break;
+                case "-r": reflector = args[++i]; break;
+                case "-w": wheels = Mapper.splitWords(args[++i].trim()); break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    values.add(arg);
+                }
+            }
+
+            if ((values.size() < 2) || (values.size() > 3))
+                throw new IllegalArgumentException("Expected ciphertext, crib and optional offset");
+
+            if (values.size() == 3)
+                offset = Integer.parseInt(values.get(2));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            String cipherText = values.get(0);
+            if (file)
+                cipherText = new String(Files.readAllBytes(new File(cipherText).toPath()));
+
+            Bombe bombe = new Bombe(cipherText, values.get(1), offset, reflector, wheels);
+            for (BombeStop stop : bombe.run())
+                System.out.println(stop);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
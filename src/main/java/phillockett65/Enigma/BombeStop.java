@@ -0,0 +1,77 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BombeStop is a class that captures a stop found by the Bombe: the wheel
+ * order and start positions (with all ring settings at A), the test letter of
+ * the menu and the letters it may be steckered to.
+ */
+package phillockett65.Enigma;
+
+public class BombeStop {
+
+    private final String[] order;
+    private final int state;
+    private final int testLetter;
+    private final int steckers;     // Bit mask of candidate stecker partners.
+
+
+    /**
+     * Constructor.
+     * @param order left, middle and right Rotor ids.
+     * @param state index of the start positions.
+     * @param testLetter index of the menu letter tested.
+     * @param steckers bit mask of the letters the test letter may be 
+     * steckered to.
+     */
+    public BombeStop(String[] order, int state, int testLetter, int steckers) {
+        this.order = order;
+        this.state = state;
+        this.testLetter = testLetter;
+        this.steckers = steckers;
+    }
+
+    public String[] getOrder() { return order; }
+    public int getState() { return state; }
+    public int getTestLetter() { return testLetter; }
+    public int getSteckers() { return steckers; }
+
+    /**
+     * @return the candidate stecker partners of the test letter as letters.
+     */
+    public String getSteckerText() {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 26; ++i)
+            if ((steckers & (1 << i)) != 0)
+                output.append(Mapper.indexToLetter(i));
+
+        return output.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Stop [" + 
+            "order=" + WheelOrders.toString(order) + 
+            ", positions=" + WheelOrders.positionsToString(state) + 
+            ", " + Mapper.indexToLetter(testLetter) + "=" + getSteckerText() + 
+            "]";
+    }
+
+}
@@ -0,0 +1,77 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Candidate is a class that captures a key found by one of the searches along
+ * with its score. Candidates are ordered by score, lowest first.
+ */
+package phillockett65.Enigma;
+
+import java.util.ArrayList;
+
+public class Candidate implements Comparable<Candidate> {
+
+    private final double score;
+    private final Configuration config;
+
+
+    /**
+     * Constructor.
+     * @param score of the decryption, higher is better.
+     * @param config settings that produced the decryption.
+     */
+    public Candidate(double score, Configuration config) {
+        this.score = score;
+        this.config = config;
+    }
+
+    /**
+     * Build the Configuration of a 3 wheel candidate with no plugs.
+     * @param reflector id of the Reflector.
+     * @param order left, middle and right Rotor ids.
+     * @param rings left, middle and right ring setting indices.
+     * @param state index of the start positions.
+     * @return the new Configuration.
+     */
+    public static Configuration toConfiguration(String reflector, String[] order, int[] rings, int state) {
+        Configuration config = new Configuration();
+        config.setReflectorChoice(reflector);
+        config.setFourthWheel(false);
+        config.setPlugText(new ArrayList<String>());
+
+        final int[] offsets = { CompiledTable.getLeft(state), CompiledTable.getMiddle(state), CompiledTable.getRight(state) };
+        for (int i = 0; i < 3; ++i)
+            config.setRotorState(Engine.LEFT + i, order[i], rings[i], offsets[i]);
+
+        return config;
+    }
+
+    public double getScore() { return score; }
+    public Configuration getConfiguration() { return config; }
+
+    @Override
+    public int compareTo(Candidate other) { return Double.compare(score, other.score); }
+
+    @Override
+    public String toString() {
+        return String.format("%.6f %s", score, config.encode());
+    }
+
+}
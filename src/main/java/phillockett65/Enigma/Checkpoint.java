@@ -0,0 +1,162 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Checkpoint is a class that records the progress of a KeySearch in a text
+ * file so that a search can be resumed after a restart. The first line
+ * identifies the search, then a "done" line is appended for each completed
+ * work unit, preceded by "result" lines for the best keys it found. Lines are
+ * flushed as each unit completes. Anything after the last complete "done"
+ * line, left by a crash while writing, is discarded before the file is
+ * appended to.
+ */
+package phillockett65.Enigma;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class Checkpoint implements Closeable {
+
+    private final BitSet done = new BitSet();
+    private final ArrayList<Candidate> results = new ArrayList<Candidate>();
+    private final BufferedWriter writer;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. Reads any progress already recorded for the same search,
+     * otherwise starts a new file. Only newline terminated lines are read, 
+     * and the file is truncated after the last "done" line before appending.
+     * @param file used for the checkpoint.
+     * @param id identifies the search.
+     * @throws IOException if the file can not be read or written.
+     * @throws IllegalArgumentException if the file belongs to a different
+     * search.
+     */
+    public Checkpoint(Path file, String id) throws IOException {
+        boolean resume = false;
+        if (Files.exists(file)) {
+            final String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            final int end = text.indexOf('\n');
+            if (end != -1) {
+                if (!text.substring(0, end).replace("\r", "").equals(id))
+                    throw new IllegalArgumentException("Checkpoint is for a different search: " + file);
+
+                final String kept = text.substring(0, read(text, end + 1));
+                final long length = kept.getBytes(StandardCharsets.UTF_8).length;
+                if (length < Files.size(file))
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        channel.truncate(length);
+                    }
+
+                resume = true;
+            }
+        }
+
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        if (!resume) {
+            writer.write(id);
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    /**
+     * Read the completed units. Only newline terminated lines are read, and 
+     * results are only kept once the "done" line of their unit has been read.
+     * @param text contents of the file.
+     * @param start of the line following the first line.
+     * @return the end of the last "done" line read, or start if there are 
+     * none.
+     */
+    private int read(String text, int start) {
+        ArrayList<Candidate> pending = new ArrayList<Candidate>();
+        int committed = start;
+
+        int end;
+        while ((end = text.indexOf('\n', start)) != -1) {
+            final String line = text.substring(start, end).replace("\r", "");
+            start = end + 1;
+            try {
+                if (line.startsWith("result ")) {
+                    final String[] fields = line.split(" ", 3);
+                    pending.add(new Candidate(Double.parseDouble(fields[1]), Configuration.decode(fields[2])));
+                } else if (line.startsWith("done ")) {
+                    done.set(Integer.parseInt(line.substring(5)));
+                    results.addAll(pending);
+                    pending.clear();
+                    committed = start;
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                // Ignore a malformed line.
+            }
+        }
+
+        return committed;
+    }
+
+
+    /************************************************************************
+     * Progress support code.
+     */
+
+    public synchronized boolean isDone(long unit) { return done.get((int)unit); }
+    public synchronized int getDoneCount() { return done.cardinality(); }
+
+    /**
+     * @return the results of the units completed before this run.
+     */
+    public List<Candidate> getResults() { return results; }
+
+    /**
+     * Record a completed unit with its best results.
+     * @param unit index of the work unit.
+     * @param best results of the unit.
+     * @throws IOException if the file can not be written.
+     */
+    public synchronized void complete(long unit, List<Candidate> best) throws IOException {
+        for (Candidate candidate : best) {
+            writer.write("result " + candidate.getScore() + " " + candidate.getConfiguration().encode());
+            writer.newLine();
+        }
+        writer.write("done " + unit);
+        writer.newLine();
+        writer.flush();
+
+        done.set((int)unit);
+    }
+
+    @Override
+    public synchronized void close() throws IOException { writer.close(); }
+
+}
@@ -0,0 +1,227 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CoincidenceSearch is a class that searches for the rotor settings of a
+ * message without a crib or any knowledge of the plugboard. Every wheel order,
+ * ring setting of the right (fast) rotor and start position is used to decrypt
+ * the message with no plugs, and the result is scored by its index of
+ * coincidence, which is higher for language than for random letters. Each
+ * wheel order and ring setting is an independent work unit with its own
+ * Engine and CompiledTable, so the search scales across cores; the best
+ * results are kept in a shared TopList.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CoincidenceSearch {
+
+    private final int[] cipher;
+    private final String reflector;
+    private final List<String> wheels;
+    private final boolean searchRings;
+    private final TopList results;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param cipherText intercepted message, non-letters are ignored.
+     * @param reflector id of the Reflector.
+     * @param wheels ids of the Rotors available.
+     * @param capacity number of results to keep.
+     * @param searchRings search the ring setting of the right rotor if true,
+     * otherwise use A only.
+     * @throws IllegalArgumentException if the message has fewer than 2 
+     * letters or the reflector is not known.
+     */
+    public CoincidenceSearch(String cipherText, String reflector, List<String> wheels, int capacity, boolean searchRings) {
+        this.cipher = Mapper.lettersToIndices(cipherText);
+        this.reflector = reflector;
+        this.wheels = wheels;
+        this.searchRings = searchRings;
+        this.results = new TopList(capacity);
+
+        if (cipher.length < 2)
+            throw new IllegalArgumentException("Message is too short");
+
+        if (Catalogue.getReflector(reflector) == null)
+            throw new IllegalArgumentException("Unknown reflector: " + reflector);
+    }
+
+    /**
+     * Constructor using Reflector B and Rotors I to V.
+     * @param cipherText intercepted message, non-letters are ignored.
+     * @param capacity number of results to keep.
+     */
+    public CoincidenceSearch(String cipherText, int capacity) {
+        this(cipherText, WheelOrders.DEFAULT_REFLECTOR, Arrays.asList(WheelOrders.DEFAULT_WHEELS), capacity, true);
+    }
+
+
+    /************************************************************************
+     * Scoring support code.
+     */
+
+    /**
+     * Calculate the index of coincidence from letter counts.
+     * @param counts of each letter.
+     * @param length total number of letters.
+     * @return the probability that two letters drawn at random are the same.
+     */
+    public static double indexOfCoincidence(int[] counts, int length) {
+        long sum = 0;
+        for (int count : counts)
+            sum += (long)count * (count - 1);
+
+        return (double)sum / ((double)length * (length - 1));
+    }
+
+
+    /************************************************************************
+     * Search support code.
+     */
+
+    /**
+     * Test every start position of a wheel order and ring setting.
+     * @param order left, middle and right Rotor ids.
+     * @param ring setting index of the right rotor.
+     */
+    private void search(String[] order, int ring) {
+        final int[] rings = { 0, 0, ring };
+        final Engine engine = WheelOrders.buildEngine(Mapper.initThroughMap(26), reflector, order, rings);
+        final CompiledTable table = CompiledTable.build(engine);
+        final int[] counts = new int[26];
+
+        for (int start = 0; start < CompiledTable.STATES; ++start) {
+            Arrays.fill(counts, 0);
+
+            int state = start;
+            for (int c : cipher) {
+                state = table.next(state);
+                counts[table.translate(state, c)]++;
+            }
+
+            final double score = indexOfCoincidence(counts, cipher.length);
+            if (results.isCandidate(score))
+                results.offer(new Candidate(score, Candidate.toConfiguration(reflector, order, rings, start)));
+        }
+    }
+
+    /**
+     * Search every wheel order and ring setting in parallel.
+     * @return the best results, highest score first.
+     */
+    public ArrayList<Candidate> run() {
+        final int ringCount = searchRings ? 26 : 1;
+
+        ArrayList<int[]> units = new ArrayList<int[]>();
+        ArrayList<String[]> orders = WheelOrders.orders(wheels);
+        for (int i = 0; i < orders.size(); ++i)
+            for (int ring = 0; ring < ringCount; ++ring)
+                units.add(new int[] { i, ring });
+
+        units.parallelStream().forEach(unit -> search(orders.get(unit[0]), unit[1]));
+
+        return results.getResults();
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: CoincidenceSearch [options] ciphertext");
+        System.err.println("Searches for the rotor settings of a message by index of coincidence.");
+        System.err.println("  -f             ciphertext is the name of a file holding the message");
+        System.err.println("  -r id          reflector (default \"" + WheelOrders.DEFAULT_REFLECTOR + "\")");
+        System.err.println("  -w \"I II III\"  rotors available (default \"" + String.join(" ", WheelOrders.DEFAULT_WHEELS) + "\")");
+        System.err.println("  -k count       number of results to show (default 10)");
+        System.err.println("  -a             use ring setting A for the right rotor instead of searching");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        String reflector = WheelOrders.DEFAULT_REFLECTOR;
+        List<String> wheels = Arrays.asList(WheelOrders.DEFAULT_WHEELS);
+        boolean file = false;
+        boolean searchRings = true;
+        int capacity = 10;
+        String cipherText = null;
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-f": file = true; break;
+                case "-a": searchRings = false; break;
+                case "-r": reflector = args[++i]; break;
+                case "-w": wheels = Mapper.splitWords(args[++i].trim()); break;
+                case "-k": capacity = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-") || (cipherText != null))
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                    cipherText = arg;
+                }
+            }
+
+            if (cipherText == null)
+                throw new IllegalArgumentException("Expected ciphertext");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            if (file)
+                cipherText = new String(Files.readAllBytes(Paths.get(cipherText)));
+
+            CoincidenceSearch search = new CoincidenceSearch(cipherText, reflector, wheels, capacity, searchRings);
+            for (Candidate candidate : search.run())
+                System.out.println(candidate);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompiledTable is a class that captures the complete behaviour of an Engine
+ * for a fixed reflector, wheel order, ring settings, plugboard and fourth
+ * wheel position. For each of the 17,576 left, middle and right rotor
+ * positions it holds the full permutation as bytes and the position reached
+ * after the next key press, so a translation is two array reads. Compiled
+ * tables are kept in a bounded LRU cache keyed by the settings.
+ */
+package phillockett65.Enigma;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CompiledTable {
+
+    public static final int STATES = 26 * 26 * 26;
+
+    private static final int CACHE_SIZE = 8;
+
+    private final String key;
+    private final int slow;         // Fourth wheel position compiled for.
+    private final byte[] table;     // STATES permutations of 26 letters.
+    private final int[] next;       // State following each state.
+    private final byte[] steps;     // Engine.stepRotors() flags of each state.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. Steps the given Engine through every state to capture
+     * the permutations and the successor states, then restores its
+     * positions.
+     * @param engine to compile.
+     */
+    private CompiledTable(Engine engine) {
+        key = engine.getSettingsKey();
+        slow = engine.getPosition(Engine.SLOW);
+        table = new byte[STATES * 26];
+        next = new int[STATES];
+        steps = new byte[STATES];
+
+        final int saved = getState(engine);
+        int[] permutation = new int[26];
+
+        for (int state = 0; state < STATES; ++state) {
+            setState(engine, state);
+            engine.getPermutation(permutation);
+
+            final int base = state * 26;
+            for (int i = 0; i < 26; ++i)
+                table[base + i] = (byte)permutation[i];
+
+            steps[state] = (byte)engine.stepRotors();
+            next[state] = getState(engine);
+        }
+
+        setState(engine, saved);
+    }
+
+
+    /************************************************************************
+     * State support code.
+     */
+
+    /**
+     * Pack the left, middle and right rotor positions into a state index.
+     * @param left position (0..25).
+     * @param middle position (0..25).
+     * @param right position (0..25).
+     * @return the state index.
+     */
+    public static int toState(int left, int middle, int right) {
+        return (left * 26 + middle) * 26 + right;
+    }
+
+    public static int getLeft(int state) { return state / 676; }
+    public static int getMiddle(int state) { return (state / 26) % 26; }
+    public static int getRight(int state) { return state % 26; }
+
+    /**
+     * @param engine to query.
+     * @return the state index of the given Engine's current positions.
+     */
+    public static int getState(Engine engine) {
+        return toState(engine.getPosition(Engine.LEFT),
+            engine.getPosition(Engine.MIDDLE), engine.getPosition(Engine.RIGHT));
+    }
+
+    /**
+     * Position the left, middle and right rotors of the given Engine.
+     * @param engine to position.
+     * @param state index of the required positions.
+     */
+    public static void setState(Engine engine, int state) {
+        engine.setPosition(Engine.LEFT, getLeft(state));
+        engine.setPosition(Engine.MIDDLE, getMiddle(state));
+        engine.setPosition(Engine.RIGHT, getRight(state));
+    }
+
+
+    /************************************************************************
+     * Getters support code.
+     */
+
+    public String getKey() { return key; }
+    public int getSlow() { return slow; }
+
+    /**
+     * @param state index of the current positions.
+     * @return the state index after the next key press.
+     */
+    public int next(int state) { return next[state]; }
+
+    /**
+     * @param state index of the current positions.
+     * @return the Engine.stepRotors() flags of the next key press.
+     */
+    public int getSteps(int state) { return steps[state]; }
+
+    /**
+     * Translate an index without stepping.
+     * @param state index of the current positions.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    public int translate(int state, int index) { return table[state * 26 + index]; }
+
+
+    /************************************************************************
+     * Cache support code.
+     */
+
+    private static final Map<String, CompiledTable> cache =
+        new LinkedHashMap<String, CompiledTable>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledTable> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    /**
+     * Compile the given Engine's settings without using the cache, for 
+     * searches that sweep many settings once each.
+     * @param engine to compile.
+     * @return a new CompiledTable for the Engine's current settings.
+     */
+    public static CompiledTable build(Engine engine) {
+        return new CompiledTable(engine);
+    }
+
+    /**
+     * Get the CompiledTable for the given Engine's settings from the cache,
+     * compiling it if it is not already present.
+     * @param engine to compile.
+     * @return the CompiledTable for the Engine's current settings.
+     */
+    public static CompiledTable get(Engine engine) {
+        final String key = engine.getSettingsKey();
+
+        synchronized (cache) {
+            CompiledTable compiled = cache.get(key);
+            if (compiled == null) {
+                compiled = new CompiledTable(engine);
+                cache.put(key, compiled);
+            }
+
+            return compiled;
+        }
+    }
+
+    /**
+     * Discard all cached tables.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+}
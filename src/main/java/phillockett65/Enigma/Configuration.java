@@ -0,0 +1,318 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Configuration is a headless class that captures the same machine settings
+ * as the Model and DataStore (reflector, wheels, ring settings, offsets and
+ * plugs) and builds an Engine from them. The initial values match
+ * Model.defaultSettings().
+ */
+package phillockett65.Enigma;
+
+import java.util.ArrayList;
+
+public class Configuration {
+
+    private String reflectorChoice = "Reflector B";
+    private boolean reconfigurable = false;
+    private ArrayList<String> pairs = new ArrayList<String>();
+
+    private boolean fourthWheel = false;
+    private final String[] wheels = { "IV", "I", "II", "III" };
+    private final int[] ringSettings = { 0, 1, 10, 1 };
+    private final int[] rotorOffsets = { 0, 0, 20, 25 };
+
+    private ArrayList<String> plugs = new ArrayList<String>();
+    private boolean extPlugboard = false;
+
+
+    /************************************************************************
+     * Getters and setters support code.
+     */
+
+    public String getReflectorChoice() { return reflectorChoice; }
+    public void setReflectorChoice(String choice) { reflectorChoice = choice; }
+
+    public boolean isReconfigurable() { return reconfigurable; }
+    public void setReconfigurable(boolean state) { reconfigurable = state; }
+
+    public ArrayList<String> getPairText() { return pairs; }
+    public void setPairText(ArrayList<String> links) { pairs = links; }
+
+    public boolean isFourthWheel() { return fourthWheel; }
+    public void setFourthWheel(boolean state) { fourthWheel = state; }
+
+    public String getWheelChoice(int index) { return wheels[index]; }
+    public int getRingIndex(int index) { return ringSettings[index]; }
+    public int getRotorIndex(int index) { return rotorOffsets[index]; }
+
+    public void setRotorState(int index, String wheelChoice, int ringIndex, int rotorIndex) {
+        wheels[index] = wheelChoice;
+        ringSettings[index] = ringIndex;
+        rotorOffsets[index] = rotorIndex;
+    }
+
+    public void setWheelChoice(int index, String wheelChoice) { wheels[index] = wheelChoice; }
+    public void setRingIndex(int index, int ringIndex) { ringSettings[index] = ringIndex; }
+    public void setRotorIndex(int index, int rotorIndex) { rotorOffsets[index] = rotorIndex; }
+
+    public ArrayList<String> getPlugText() { return plugs; }
+    public void setPlugText(ArrayList<String> links) { plugs = links; }
+
+    public boolean isExtPlugboard() { return extPlugboard; }
+    public void setExtPlugboard(boolean state) { extPlugboard = state; }
+
+
+    /************************************************************************
+     * String representation support code.
+     */
+
+    /**
+     * Apply a space separated list of letters or numbers to the right most
+     * rotors.
+     * @param list of values.
+     * @param rings true for ring settings, false for rotor offsets.
+     * @throws IllegalArgumentException if the list is not valid.
+     */
+    private void setIndices(String list, boolean rings) {
+        ArrayList<String> values = Mapper.splitWords(list.trim());
+        final int first = Engine.ROTOR_COUNT - values.size();
+        if (first < 0)
+            throw new IllegalArgumentException("Too many values: " + list);
+
+        for (int i = 0; i < values.size(); ++i) {
+            final int index;
+            try {
+                index = Mapper.stringToIndex(values.get(i));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid value: " + values.get(i));
+            }
+            if ((index < 0) || (index > 25))
+                throw new IllegalArgumentException("Invalid value: " + values.get(i));
+
+            if (rings)
+                setRingIndex(first + i, index);
+            else
+                setRotorIndex(first + i, index);
+        }
+    }
+
+    /**
+     * Set the ring settings of the right most rotors.
+     * @param list of space separated letters or numbers, e.g. "A B C".
+     */
+    public void setRingSettings(String list) { setIndices(list, true); }
+
+    /**
+     * Set the rotor offsets of the right most rotors.
+     * @param list of space separated letters or numbers, e.g. "A B C".
+     */
+    public void setRotorOffsets(String list) { setIndices(list, false); }
+
+    /**
+     * Set the wheel order, 4 wheels selects the fourth wheel.
+     * @param list of space separated rotor ids, e.g. "I II III".
+     * @throws IllegalArgumentException if the list is not 3 or 4 long.
+     */
+    public void setWheels(String list) {
+        ArrayList<String> values = Mapper.splitWords(list.trim());
+        final int count = values.size();
+        if ((count < 3) || (count > Engine.ROTOR_COUNT))
+            throw new IllegalArgumentException("Expected 3 or 4 wheels: " + list);
+
+        setFourthWheel(count == Engine.ROTOR_COUNT);
+
+        final int first = Engine.ROTOR_COUNT - count;
+        for (int i = 0; i < count; ++i)
+            setWheelChoice(first + i, values.get(i));
+    }
+
+    /**
+     * Set a reconfigurable reflector.
+     * @param list of space separated pairs, e.g. "AB CD".
+     */
+    public void setReflectorPairs(String list) {
+        setPairText(Mapper.splitWords(list.trim()));
+        setReconfigurable(true);
+    }
+
+    /**
+     * Set the plugboard, using the extended plugboard if needed.
+     * @param list of space separated pairs, e.g. "AB CD".
+     */
+    public void setPlugs(String list) {
+        ArrayList<String> links = list.isBlank() ? new ArrayList<String>() : Mapper.splitWords(list.trim());
+        setExtPlugboard(links.size() > Model.PLUG_COUNT);
+        setPlugText(links);
+    }
+
+    private static String join(ArrayList<String> links) {
+        StringBuilder output = new StringBuilder();
+        for (String link : links) {
+            if (link.length() != 2)
+                continue;
+            if (output.length() > 0)
+                output.append(' ');
+            output.append(link);
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Encode the settings as a String of semicolon separated name=value 
+     * fields, e.g. "reflector=Reflector B;wheels=I II III;rings=A A A;
+     * offsets=A A A;plugs=AB CD".
+     * @return the encoded settings.
+     */
+    public String encode() {
+        StringBuilder output = new StringBuilder();
+
+        if (reconfigurable)
+            output.append("pairs=" + join(pairs));
+        else
+            output.append("reflector=" + reflectorChoice);
+
+        final int first = fourthWheel ? Engine.SLOW : Engine.LEFT;
+        StringBuilder wheelText = new StringBuilder();
+        StringBuilder ringText = new StringBuilder();
+        StringBuilder offsetText = new StringBuilder();
+        for (int i = first; i < Engine.ROTOR_COUNT; ++i) {
+            final String sep = (i == first) ? "" : " ";
+            wheelText.append(sep + wheels[i]);
+            ringText.append(sep + Mapper.indexToLetter(ringSettings[i]));
+            offsetText.append(sep + Mapper.indexToLetter(rotorOffsets[i]));
+        }
+
+        output.append(";wheels=" + wheelText);
+        output.append(";rings=" + ringText);
+        output.append(";offsets=" + offsetText);
+        final int plugCount = extPlugboard ? plugs.size() : Math.min(plugs.size(), Model.PLUG_COUNT);
+        output.append(";plugs=" + join(new ArrayList<String>(plugs.subList(0, plugCount))));
+
+        return output.toString();
+    }
+
+    /**
+     * Decode settings produced by encode(). Fields that are not present keep
+     * their default values.
+     * @param text encoded settings.
+     * @return the decoded Configuration.
+     * @throws IllegalArgumentException if the text is not valid.
+     */
+    public static Configuration decode(String text) {
+        Configuration config = new Configuration();
+
+        for (String field : text.split(";")) {
+            final int split = field.indexOf('=');
+            if (split == -1)
+                throw new IllegalArgumentException("Invalid field: " + field);
+
+            final String name = field.substring(0, split).trim();
+            final String value = field.substring(split + 1);
+            switch (name) {
+            case "reflector": config.setReflectorChoice(value.trim()); config.setReconfigurable(false); break;
+            case "pairs": config.setReflectorPairs(value); break;
+            case "wheels": config.setWheels(value); break;
+            case "rings": config.setRingSettings(value); break;
+            case "offsets": config.setRotorOffsets(value); break;
+            case "plugs": config.setPlugs(value); break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+        }
+
+        return config;
+    }
+
+
+    /************************************************************************
+     * Engine construction support code.
+     */
+
+    /**
+     * Build the reflector map, validating it as Model.isReflectorValid()
+     * does.
+     * @return the reflector map.
+     * @throws IllegalArgumentException if the reflector is not valid.
+     */
+    public int[] getReflectorMap() {
+        if (reconfigurable) {
+            Pairs reflector = new Pairs(false);
+            reflector.setLinks(pairs);
+            if (!reflector.isValid())
+                throw new IllegalArgumentException("Invalid reflector pairs: " + pairs);
+
+            return reflector.getMap();
+        }
+
+        RotorData rotor = Catalogue.getReflector(reflectorChoice);
+        if (rotor == null)
+            throw new IllegalArgumentException("Unknown reflector: " + reflectorChoice);
+
+        return rotor.getMap();
+    }
+
+    /**
+     * Build the plugboard map, validating it as Model.isPlugboardValid()
+     * does.
+     * @return the plugboard map.
+     * @throws IllegalArgumentException if the plugboard is not valid.
+     */
+    public int[] getPlugboardMap() {
+        Pairs plugboard = new Pairs(true);
+        plugboard.setLinks(plugs);
+        for (int i = Model.PLUG_COUNT; i < Model.FULL_COUNT; ++i)
+            plugboard.setEnabled(i, extPlugboard);
+        plugboard.countLetterUsage();
+
+        if (!plugboard.isValid())
+            throw new IllegalArgumentException("Invalid plugboard: " + plugs);
+
+        return plugboard.getMap();
+    }
+
+    /**
+     * Build an Engine from the settings, positioned at the rotor offsets.
+     * @return the new Engine.
+     * @throws IllegalArgumentException if any of the settings are not valid.
+     */
+    public Engine buildEngine() {
+        for (String wheel : wheels)
+            if (Catalogue.getRotor(wheel) == null)
+                throw new IllegalArgumentException("Unknown rotor: " + wheel);
+
+        Engine engine = new Engine(getPlugboardMap(), getReflectorMap(), wheels, ringSettings, fourthWheel);
+        engine.setPositions(rotorOffsets);
+
+        return engine;
+    }
+
+    /**
+     * Build an immutable MachineSpec from the settings, with the rotor 
+     * offsets as its start positions.
+     * @return the new MachineSpec.
+     * @throws IllegalArgumentException if any of the settings are not valid.
+     */
+    public MachineSpec buildSpec() {
+        return new MachineSpec(getPlugboardMap(), getReflectorMap(), wheels, ringSettings, rotorOffsets, fourthWheel);
+    }
+
+}
@@ -0,0 +1,551 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CycleCatalogue is a class that implements Rejewski's catalogue of the cycle
+ * structures of the AD, BE and CF permutations. When a message key is typed
+ * twice at the ground setting, the 1st and 4th (2nd and 5th, 3rd and 6th)
+ * letters of the indicators define the permutation A4.A1 (A5.A2, A6.A3),
+ * whose cycle structure does not depend on the plugboard. The catalogue holds
+ * the structures for every wheel order and all 17,576 positions, with ring
+ * settings at A, plus an inverted index from each signature to the positions
+ * that produce it, so a day's indicators give candidate settings with a single
+ * binary search. The catalogue is built in parallel and can be saved to and
+ * memory mapped from a file.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class CycleCatalogue {
+
+    public static final int MAGIC = 0x43594354;    // "CYCT".
+    public static final int VERSION = 1;
+
+    private final String reflector;     // Description of the reflector.
+    private final List<String> wheels;
+    private final ArrayList<String[]> orders;
+
+    private final IntBuffer signatures; // Signature of each entry.
+    private final IntBuffer keys;       // Sorted distinct signatures.
+    private final IntBuffer starts;     // Start of each key in entries.
+    private final IntBuffer entries;    // Entries grouped by signature.
+
+
+    /************************************************************************
+     * Cycle structure support code.
+     */
+
+    private static final HashMap<Long, Integer> partitions = new HashMap<Long, Integer>();
+
+    /**
+     * Number the partitions of 13, as the cycles of the product of two
+     * involutions without fixed points come in pairs of equal length.
+     * @param remaining amount still to be partitioned.
+     * @param largest part allowed.
+     * @param key packed count of each part so far.
+     */
+    private static void addPartitions(int remaining, int largest, long key) {
+        if (remaining == 0) {
+            partitions.put(key, partitions.size());
+            return;
+        }
+
+        for (int part = Math.min(remaining, largest); part > 0; --part)
+            addPartitions(remaining - part, part, key + (1L << (4 * (part - 1))));
+    }
+
+    static {
+        addPartitions(13, 13, 0);
+    }
+
+    public static final int PARTITION_COUNT = partitions.size();
+
+    /**
+     * Get the cycle structure of a permutation.
+     * @param permutation of 26 letters.
+     * @return the number of the partition, or -1 if the cycles do not come
+     * in pairs.
+     */
+    public static int getStructure(int[] permutation) {
+        int seen = 0;
+        int[] counts = new int[27];
+        for (int i = 0; i < 26; ++i) {
+            if ((seen & (1 << i)) != 0)
+                continue;
+
+            int length = 0;
+            for (int j = i; (seen & (1 << j)) == 0; j = permutation[j]) {
+                seen |= 1 << j;
+                ++length;
+            }
+            counts[length]++;
+        }
+
+        long key = 0;
+        for (int length = 1; length <= 13; ++length) {
+            if ((counts[length] & 1) != 0)
+                return -1;
+
+            key += (long)(counts[length] / 2) << (4 * (length - 1));
+        }
+        for (int length = 14; length <= 26; ++length)
+            if (counts[length] != 0)
+                return -1;
+
+        return partitions.get(key);
+    }
+
+    /**
+     * Combine the cycle structures of AD, BE and CF.
+     * @param permutations AD, BE and CF.
+     * @return the signature, or -1 if any permutation is not possible.
+     */
+    public static int getSignature(int[][] permutations) {
+        int output = 0;
+        for (int[] permutation : permutations) {
+            final int structure = getStructure(permutation);
+            if (structure == -1)
+                return -1;
+
+            output = output * PARTITION_COUNT + structure;
+        }
+
+        return output;
+    }
+
+    /**
+     * Derive AD, BE and CF from the doubled indicators of a day's messages.
+     * @param indicators 6 letter indicators.
+     * @return the AD, BE and CF permutations.
+     * @throws IllegalArgumentException if the indicators conflict or do not
+     * define every letter of each permutation.
+     */
+    public static int[][] fromIndicators(List<String> indicators) {
+        int[][] output = new int[3][26];
+        for (int[] permutation : output)
+            Arrays.fill(permutation, -1);
+
+        for (String indicator : indicators) {
+            final int[] letters = Mapper.lettersToIndices(indicator);
+            if (letters.length != 6)
+                throw new IllegalArgumentException("Invalid indicator: " + indicator);
+
+            for (int i = 0; i < 3; ++i) {
+                final int from = letters[i];
+                final int to = letters[i + 3];
+                if ((output[i][from] != -1) && (output[i][from] != to))
+                    throw new IllegalArgumentException("Conflicting indicator: " + indicator);
+
+                output[i][from] = to;
+            }
+        }
+
+        for (int[] permutation : output)
+            for (int to : permutation)
+                if (to == -1)
+                    throw new IllegalArgumentException("Not enough indicators to define every letter");
+
+        return output;
+    }
+
+    /**
+     * Generate the doubled indicators of a day's traffic, using random
+     * message keys.
+     * @param dayKey settings of the day, positioned at the ground setting.
+     * @param count number of messages.
+     * @param random source of message keys.
+     * @return the 6 letter indicators.
+     */
+    public static ArrayList<String> generateIndicators(Configuration dayKey, int count, Random random) {
+        ArrayList<String> output = new ArrayList<String>(count);
+        char[] indicator = new char[6];
+
+        for (int i = 0; i < count; ++i) {
+            for (int j = 0; j < 3; ++j)
+                indicator[j] = indicator[j + 3] = (char)Mapper.indexToChar(random.nextInt(26));
+
+            dayKey.buildEngine().translate(indicator, 0, indicator, 0, 6);
+            output.add(new String(indicator));
+        }
+
+        return output;
+    }
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    private CycleCatalogue(String reflector, List<String> wheels, IntBuffer signatures,
+        IntBuffer keys, IntBuffer starts, IntBuffer entries) {
+        this.reflector = reflector;
+        this.wheels = wheels;
+        this.orders = WheelOrders.orders(wheels);
+        this.signatures = signatures;
+        this.keys = keys;
+        this.starts = starts;
+        this.entries = entries;
+    }
+
+    /**
+     * Calculate the signature of every position of a wheel order.
+     * @param reflectorMap map of the reflector connections.
+     * @param order left, middle and right Rotor ids.
+     * @param output for the signatures, indexed by state.
+     * @param base index in output of state 0.
+     */
+    private static void build(int[] reflectorMap, String[] order, int[] output, int base) {
+        final Engine engine = WheelOrders.buildEngine(Mapper.initThroughMap(26), reflectorMap, order, new int[3]);
+        final CompiledTable table = CompiledTable.build(engine);
+        int[][] permutations = new int[3][26];
+        int[] states = new int[6];
+
+        for (int start = 0; start < CompiledTable.STATES; ++start) {
+            int state = start;
+            for (int i = 0; i < 6; ++i) {
+                state = table.next(state);
+                states[i] = state;
+            }
+
+            for (int i = 0; i < 3; ++i)
+                for (int x = 0; x < 26; ++x)
+                    permutations[i][x] = table.translate(states[i + 3], table.translate(states[i], x));
+
+            output[base + start] = getSignature(permutations);
+        }
+    }
+
+    /**
+     * Build the catalogue for every wheel order, with the wheel orders 
+     * handled in parallel.
+     * @param reflector description of the reflector, e.g. its id.
+     * @param reflectorMap map of the reflector connections.
+     * @param wheels ids of the Rotors available.
+     * @return the new CycleCatalogue.
+     */
+    public static CycleCatalogue build(String reflector, int[] reflectorMap, List<String> wheels) {
+        final ArrayList<String[]> orders = WheelOrders.orders(wheels);
+        final int count = orders.size() * CompiledTable.STATES;
+        final int[] signatures = new int[count];
+
+        IntStream.range(0, orders.size()).parallel()
+            .forEach(i -> build(reflectorMap, orders.get(i), signatures, i * CompiledTable.STATES));
+
+        // Build the inverted index with a counting sort on the signatures.
+        final int space = PARTITION_COUNT * PARTITION_COUNT * PARTITION_COUNT;
+        int[] counts = new int[space + 1];
+        for (int signature : signatures)
+            counts[signature + 1]++;
+
+        int keyCount = 0;
+        for (int i = 1; i <= space; ++i)
+            if (counts[i] != 0)
+                ++keyCount;
+
+        int[] keys = new int[keyCount];
+        int[] starts = new int[keyCount + 1];
+        int[] next = new int[space];
+        int total = 0;
+        keyCount = 0;
+        for (int signature = 0; signature < space; ++signature) {
+            next[signature] = total;
+            if (counts[signature + 1] != 0) {
+                keys[keyCount] = signature;
+                starts[keyCount++] = total;
+                total += counts[signature + 1];
+            }
+        }
+        starts[keyCount] = total;
+
+        int[] entries = new int[count];
+        for (int entry = 0; entry < count; ++entry)
+            entries[next[signatures[entry]]++] = entry;
+
+        return new CycleCatalogue(reflector, wheels, IntBuffer.wrap(signatures),
+            IntBuffer.wrap(keys), IntBuffer.wrap(starts), IntBuffer.wrap(entries));
+    }
+
+
+    /************************************************************************
+     * File support code.
+     */
+
+    /*
+     * File layout, big endian: MAGIC, VERSION, the length of the description
+     * followed by the description in UTF-8 ("reflector;wheels"), the number
+     * of entries and keys, then the signatures, keys, starts and entries.
+     */
+
+    /**
+     * Save the catalogue.
+     * @param file to create or replace.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(Path file) throws IOException {
+        final byte[] description = (reflector + ";" + String.join(" ", wheels)).getBytes(StandardCharsets.UTF_8);
+        final int keyCount = keys.capacity();
+        final int count = signatures.capacity();
+
+        ByteBuffer buffer = ByteBuffer.allocate(20 + description.length + 4 * (2 * count + 2 * keyCount + 1));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(description.length).put(description);
+        buffer.putInt(count).putInt(keyCount);
+        for (IntBuffer part : new IntBuffer[] { signatures, keys, starts, entries })
+            for (int i = 0; i < part.capacity(); ++i)
+                buffer.putInt(part.get(i));
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Slice the next block of ints from a buffer.
+     * @param buffer positioned at the block.
+     * @param count number of ints.
+     * @return the ints as a read only IntBuffer.
+     */
+    private static IntBuffer slice(ByteBuffer buffer, int count) {
+        ByteBuffer part = buffer.slice();
+        part.limit(4 * count);
+        buffer.position(buffer.position() + 4 * count);
+
+        return part.asIntBuffer();
+    }
+
+    /**
+     * Map a catalogue saved by write().
+     * @param file of the catalogue.
+     * @return the CycleCatalogue read from the file.
+     * @throws IOException if the file can not be read or is not valid.
+     */
+    public static CycleCatalogue load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION))
+                throw new IOException("Not a cycle catalogue file: " + file);
+
+            byte[] description = new byte[buffer.getInt()];
+            buffer.get(description);
+            final String[] fields = new String(description, StandardCharsets.UTF_8).split(";", 2);
+            final int count = buffer.getInt();
+            final int keyCount = buffer.getInt();
+
+            return new CycleCatalogue(fields[0], Mapper.splitWords(fields[1]),
+                slice(buffer, count), slice(buffer, keyCount), slice(buffer, keyCount + 1), slice(buffer, count));
+        }
+    }
+
+
+    /************************************************************************
+     * Look up support code.
+     */
+
+    public String getReflector() { return reflector; }
+    public List<String> getWheels() { return wheels; }
+    public int size() { return signatures.capacity(); }
+
+    /**
+     * @param entry index of a wheel order and position.
+     * @return the left, middle and right Rotor ids of the entry.
+     */
+    public String[] getOrder(int entry) { return orders.get(entry / CompiledTable.STATES); }
+
+    /**
+     * @param entry index of a wheel order and position.
+     * @return the state index of the positions of the entry.
+     */
+    public int getState(int entry) { return entry % CompiledTable.STATES; }
+
+    /**
+     * @param entry index of a wheel order and position.
+     * @return the signature of the entry.
+     */
+    public int getSignature(int entry) { return signatures.get(entry); }
+
+    /**
+     * Find every wheel order and position with the given signature.
+     * @param signature to find.
+     * @return the matching entries.
+     */
+    public int[] find(int signature) {
+        int low = 0;
+        int high = keys.capacity() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int key = keys.get(mid);
+            if (key < signature)
+                low = mid + 1;
+            else if (key > signature)
+                high = mid - 1;
+            else {
+                final int first = starts.get(mid);
+                int[] output = new int[starts.get(mid + 1) - first];
+                for (int i = 0; i < output.length; ++i)
+                    output[i] = entries.get(first + i);
+
+                return output;
+            }
+        }
+
+        return new int[0];
+    }
+
+    /**
+     * Find every wheel order and position consistent with a day's 
+     * indicators.
+     * @param indicators 6 letter indicators.
+     * @return the matching entries.
+     * @throws IllegalArgumentException if the indicators are not sufficient.
+     */
+    public int[] find(List<String> indicators) {
+        final int signature = getSignature(fromIndicators(indicators));
+        if (signature == -1)
+            return new int[0];
+
+        return find(signature);
+    }
+
+    /**
+     * @param entry index of a wheel order and position.
+     * @return the wheel order and positions of the entry, e.g. "I II III ADU".
+     */
+    public String toString(int entry) {
+        return WheelOrders.toString(getOrder(entry)) + " " + WheelOrders.positionsToString(getState(entry));
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: CycleCatalogue -b [options] file");
+        System.err.println("       CycleCatalogue file -d day [-m count]");
+        System.err.println("       CycleCatalogue file indicator...");
+        System.err.println("Builds a catalogue, or finds the settings of a day's doubled indicators.");
+        System.err.println("  -b             build the catalogue and save it to file");
+        System.err.println("  -r id          reflector (default \"" + WheelOrders.DEFAULT_REFLECTOR + "\")");
+        System.err.println("  -p \"AB CD ..\"  reconfigurable reflector pairs");
+        System.err.println("  -w \"I II III\"  rotors available (default \"" + String.join(" ", WheelOrders.DEFAULT_WHEELS) + "\")");
+        System.err.println("  -d day         generate indicators for a day of key list 649");
+        System.err.println("  -m count       number of messages generated (default 200)");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        boolean build = false;
+        String reflector = WheelOrders.DEFAULT_REFLECTOR;
+        String pairs = null;
+        List<String> wheels = Arrays.asList(WheelOrders.DEFAULT_WHEELS);
+        int day = -1;
+        int count = 200;
+        SettingsData settings = null;
+        ArrayList<String> values = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-b": build = true; break;
+                case "-r": reflector = args[++i]; break;
+                case "-p": pairs = args[++i]; break;
+                case "-w": wheels = Mapper.splitWords(args[++i].trim()); break;
+                case "-d": day = Integer.parseInt(args[++i]); break;
+                case "-m": count = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    values.add(arg);
+                }
+            }
+
+            if (values.isEmpty())
+                throw new IllegalArgumentException("Expected catalogue file");
+
+            if (day != -1) {
+                settings = KeyList.getSettings(day);
+                if (settings == null)
+                    throw new IllegalArgumentException("No settings for day " + day);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            final Path file = Paths.get(values.get(0));
+            if (build) {
+                Configuration config = new Configuration();
+                config.setReflectorChoice(reflector);
+                if (pairs != null)
+                    config.setReflectorPairs(pairs);
+
+                final String description = (pairs != null) ? pairs : reflector;
+                build(description, config.getReflectorMap(), wheels).write(file);
+                return;
+            }
+
+            List<String> indicators = values.subList(1, values.size());
+            if (settings != null) {
+                Configuration config = settings.getConfiguration(0);
+                System.out.println("Day " + day + ": " + config.encode());
+                indicators = generateIndicators(config, count, new Random(day));
+            }
+
+            CycleCatalogue catalogue = load(file);
+            for (int entry : catalogue.find(indicators))
+                System.out.println(catalogue.toString(entry));
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
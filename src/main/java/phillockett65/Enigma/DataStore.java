@@ -126,11 +126,54 @@ public class DataStore implements Serializable {
     }
 
 
+    /**
+     * Data exchange from this DataStore to a headless Configuration.
+     * @return the Configuration populated from this DataStore.
+     */
+    public Configuration getConfiguration() {
+        Configuration config = new Configuration();
+
+        config.setReflectorChoice(reflectorChoice);
+        config.setReconfigurable(reconfigurable);
+        config.setPairText(pairs);
+
+        config.setFourthWheel(fourthWheel);
+
+        final int rotorStateCount = wheels.size();
+        for (int i = 0; i < rotorStateCount; ++i) {
+            config.setRotorState(i, wheels.get(i), ringSettings.get(i), rotorOffsets.get(i));
+        }
+
+        config.setPlugText(plugs);
+        config.setExtPlugboard(extPlugboard);
+
+        return config;
+    }
+
 
     /************************************************************************
      * Support code for static public interface.
      */
 
+    /**
+     * Commit the Flight Recorder event for a settings file access if it is 
+     * being recorded.
+     * @param event begun at the start of the access.
+     * @param path of the settings file.
+     * @param write true for a write, false for a read.
+     * @param success of the access.
+     */
+    private static void commitEvent(SettingsFileEvent event, String path, boolean write, boolean success) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.path = path;
+        event.write = write;
+        event.success = success;
+        event.commit();
+    }
+
     /**
      * Static method that instantiates a DataStore, populates it from the 
      * model and writes it to disc.
@@ -139,6 +182,9 @@ public class DataStore implements Serializable {
      */
     public static boolean writeData(Model model) {
         boolean success = false;
+        final long start = System.nanoTime();
+        SettingsFileEvent event = new SettingsFileEvent();
+        event.begin();
 
         DataStore dataStore = new DataStore();
         dataStore.pull(model);
@@ -155,6 +201,9 @@ public class DataStore implements Serializable {
             System.out.println(e.getMessage());
         }
 
+        MachineStats.getInstance().addSettingsWrite(System.nanoTime() - start);
+        commitEvent(event, model.getSettingsFile(), true, success);
+
         return success;
     }
 
@@ -166,6 +215,9 @@ public class DataStore implements Serializable {
      */
     public static boolean readData(Model model) {
         boolean success = false;
+        final long start = System.nanoTime();
+        SettingsFileEvent event = new SettingsFileEvent();
+        event.begin();
 
         ObjectInputStream objectInputStream;
         try {
@@ -181,10 +233,46 @@ public class DataStore implements Serializable {
             System.out.println(e.getMessage());
         }
 
+        MachineStats.getInstance().addSettingsRead(System.nanoTime() - start);
+        commitEvent(event, model.getSettingsFile(), false, success);
+
         return success;
     }
 
 
+    /**
+     * Static method that instantiates a DataStore from the given file 
+     * without a Model and converts it to a Configuration.
+     * @param file path of the settings data file.
+     * @return the Configuration if successfully read from disc, null 
+     * otherwise.
+     */
+    public static Configuration readConfiguration(String file) {
+        Configuration config = null;
+        final long start = System.nanoTime();
+        SettingsFileEvent event = new SettingsFileEvent();
+        event.begin();
+
+        ObjectInputStream objectInputStream;
+        try {
+            objectInputStream = new ObjectInputStream(new FileInputStream(file));
+
+            DataStore dataStore = (DataStore)objectInputStream.readObject();
+            config = dataStore.getConfiguration();
+            dataStore.dump();
+
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        } catch (ClassNotFoundException e) {
+            System.out.println(e.getMessage());
+        }
+
+        MachineStats.getInstance().addSettingsRead(System.nanoTime() - start);
+        commitEvent(event, file, false, config != null);
+
+        return config;
+    }
+
 
     /************************************************************************
      * Support code for debug stuff.
@@ -0,0 +1,768 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Engine is a headless class that captures the locked down machine (plugboard,
+ * rotors and reflector) and the rotor positions as plain ints. It steps and
+ * translates without any JavaFX objects, so the GUI only reads the positions
+ * back to refresh the rotor offset spinners.
+ */
+package phillockett65.Enigma;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class Engine {
+
+    public static final int SLOW = 0;
+    public static final int LEFT = 1;
+    public static final int MIDDLE = 2;
+    public static final int RIGHT = 3;
+    public static final int ROTOR_COUNT = 4;
+
+    private final Mapper plugboard;
+    private final Rotor[] rotors;
+    private final Mapper reflector;
+    private final boolean fourthWheel;
+    private final Rotor[] stack;    // Active Rotors in RIGHT_TO_LEFT order.
+
+    private final int[] positions = new int[ROTOR_COUNT];
+    private SignalTrace trace = null;          // Only set in show mode.
+
+    private final int[] inner = new int[26];   // Middle to reflector and back.
+    private boolean innerValid = false;
+
+    private CompiledTable compiled = null;
+    private int state = 0;                      // CompiledTable state index.
+
+    private StepTable stepTable = null;
+
+    private Pipeline pipeline = null;           // Generated by PipelineCompiler.
+
+    static final int NOTCH_STEP = 1;            // Step flags from stepRotors().
+    static final int TURNOVER_STEP = 2;
+
+    private long letters = 0;                   // Counts not yet published.
+    private long doubleSteps = 0;
+    private long leftSteps = 0;
+    private boolean turnedOver = false;         // Last step was a turnover.
+    private long translated = 0;                // Letters translated in total.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param plugboard Mapper for the plugboard.
+     * @param rotors array of ROTOR_COUNT Rotors indexed by SLOW to RIGHT.
+     * @param reflector Mapper for the reflector.
+     * @param fourthWheel true if the SLOW Rotor is in use.
+     */
+    public Engine(Mapper plugboard, Rotor[] rotors, Mapper reflector, boolean fourthWheel) {
+        this.plugboard = plugboard;
+        this.rotors = rotors;
+        this.reflector = reflector;
+        this.fourthWheel = fourthWheel;
+        stack = buildStack();
+
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            setPosition(i, rotors[i].getOffset());
+    }
+
+    /**
+     * Constructor that looks up the wiring in the Catalogue, for use without
+     * a Model.
+     * @param plugboardMap map of the plugboard connections.
+     * @param reflectorMap map of the reflector.
+     * @param wheels ids of the ROTOR_COUNT Rotors indexed by SLOW to RIGHT.
+     * @param rings ring setting indices of the Rotors.
+     * @param fourthWheel true if the SLOW Rotor is in use.
+     */
+    public Engine(int[] plugboardMap, int[] reflectorMap, String[] wheels, int[] rings, boolean fourthWheel) {
+        this(new Mapper("Plugboard", plugboardMap), buildRotors(wheels, rings),
+            new Mapper("Reflector", reflectorMap), fourthWheel);
+    }
+
+    /**
+     * Build the list of active Rotors in RIGHT_TO_LEFT order so that bulk 
+     * translation does not need to check for the fourth wheel.
+     * @return array of active Rotors.
+     */
+    private Rotor[] buildStack() {
+        if (fourthWheel)
+            return new Rotor[] { rotors[RIGHT], rotors[MIDDLE], rotors[LEFT], rotors[SLOW] };
+
+        return new Rotor[] { rotors[RIGHT], rotors[MIDDLE], rotors[LEFT] };
+    }
+
+    /**
+     * Create an independent Engine with the same settings and positions. The
+     * immutable Mappers and any CompiledTable, Pipeline or StepTable are 
+     * shared, but the Rotors are not, so the copy can be used on another 
+     * thread.
+     * @return the new Engine.
+     */
+    public Engine copy() {
+        Rotor[] copies = new Rotor[ROTOR_COUNT];
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            copies[i] = new Rotor(rotors[i].getData(), rotors[i].getRingSetting());
+
+        Engine output = new Engine(plugboard, copies, reflector, fourthWheel);
+        output.setPositions(positions);
+        output.setCompiled(compiled);
+        output.setPipeline(pipeline);
+        output.stepTable = stepTable;
+
+        return output;
+    }
+
+    private static Rotor[] buildRotors(String[] wheels, int[] rings) {
+        Rotor[] output = new Rotor[ROTOR_COUNT];
+
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            output[i] = new Rotor(Catalogue.getRotor(wheels[i]), rings[i]);
+
+        return output;
+    }
+
+
+    /************************************************************************
+     * Getters and setters support code.
+     */
+
+    public boolean isFourthWheel() { return fourthWheel; }
+
+    public boolean isShow() { return trace != null; }
+
+    /**
+     * Turn show mode on or off. In show mode each key press is traced to 
+     * the command line in the background.
+     * @param state true to show each translation step.
+     */
+    public void setShow(boolean state) {
+        if (state)
+            startTrace(SignalTrace.DEFAULT_CAPACITY, System.out);
+        else
+            stopTrace();
+    }
+
+    public int getPosition(int id) { return positions[id]; }
+
+    /**
+     * Set the position (offset) of the identified Rotor.
+     * @param id of Rotor (SLOW to RIGHT).
+     * @param index (0..25) of the required position.
+     */
+    public void setPosition(int id, int index) {
+        positions[id] = index;
+        rotors[id].setOffset(index);
+
+        if (id != RIGHT)
+            innerValid = false;
+
+        if (compiled != null) {
+            if ((id == SLOW) && (index != compiled.getSlow()))
+                compiled = null;
+            else
+                state = CompiledTable.getState(this);
+        }
+    }
+
+    /**
+     * Set the positions (offsets) of all the Rotors.
+     * @param indices array of ROTOR_COUNT positions indexed by SLOW to RIGHT.
+     */
+    public void setPositions(int[] indices) {
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            setPosition(i, indices[i]);
+    }
+
+    /**
+     * Build a String that uniquely identifies the settings that determine 
+     * the behaviour of this Engine apart from the left, middle and right 
+     * rotor positions.
+     * @return the settings key.
+     */
+    public String getSettingsKey() {
+        StringBuilder output = new StringBuilder();
+
+        output.append(Arrays.toString(plugboard.getMap()));
+        output.append(Arrays.toString(reflector.getMap()));
+
+        final int first = fourthWheel ? SLOW : LEFT;
+        for (int i = first; i < ROTOR_COUNT; ++i) {
+            final Rotor rotor = rotors[i];
+            output.append(" " + rotor.getId() + ":" + rotor.getRingSetting());
+        }
+
+        if (fourthWheel)
+            output.append(" @" + positions[SLOW]);
+
+        return output.toString();
+    }
+
+
+    /************************************************************************
+     * Jump ahead support code.
+     */
+
+    /**
+     * @return the StepTable for the middle and right rotors, built on first
+     * use.
+     */
+    public StepTable getStepTable() {
+        if (stepTable == null)
+            stepTable = new StepTable(rotors[MIDDLE], rotors[RIGHT]);
+
+        return stepTable;
+    }
+
+    /**
+     * Move the Rotors to the positions they would reach after the given 
+     * number of key presses, including any double steps, without simulating
+     * each step.
+     * @param keys number of key presses, which must not be negative.
+     * @throws IllegalArgumentException if keys is negative.
+     */
+    public void jump(long keys) {
+        if (keys < 0)
+            throw new IllegalArgumentException("Negative key count: " + keys);
+
+        final int target = getStepTable().jump(CompiledTable.getState(this), keys);
+        CompiledTable.setState(this, target);
+    }
+
+
+    /************************************************************************
+     * Compiled mode support code.
+     */
+
+    public boolean isCompiled() { return compiled != null; }
+
+    /**
+     * Select compiled mode, where quiet translation uses the given table 
+     * instead of the Mappers. The table is dropped if the fourth wheel is 
+     * subsequently repositioned.
+     * @param table compiled for this Engine's settings, or null to revert to 
+     * normal translation.
+     */
+    public void setCompiled(CompiledTable table) {
+        compiled = table;
+        if (compiled != null)
+            state = CompiledTable.getState(this);
+    }
+
+    /**
+     * Step and translate an index using the compiled table. The positions 
+     * are not updated, flushState() must be called before they are used.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    private int translateCompiled(int index) {
+        countSteps(compiled.getSteps(state));
+        state = compiled.next(state);
+        return compiled.translate(state, index);
+    }
+
+    /**
+     * Update the positions from the compiled state and publish the counts.
+     */
+    private void flushState() {
+        if (compiled != null)
+            CompiledTable.setState(this, state);
+
+        publishStats();
+    }
+
+
+    /************************************************************************
+     * Statistics support code.
+     */
+
+    /**
+     * Count a translated letter and the rotor steps it caused. A double 
+     * step is the middle rotor stepping on its notch immediately after 
+     * being stepped by the right rotor's turnover.
+     * @param steps flags returned by stepRotors().
+     */
+    private void countSteps(int steps) {
+        ++letters;
+        ++translated;
+
+        if ((steps & NOTCH_STEP) != 0) {
+            ++leftSteps;
+            if (turnedOver)
+                ++doubleSteps;
+        }
+
+        turnedOver = (steps & TURNOVER_STEP) != 0;
+    }
+
+    /**
+     * @return a short id that identifies the settings key, for use in 
+     * Flight Recorder events.
+     */
+    public String getConfigurationId() {
+        return String.format("%08x", getSettingsKey().hashCode());
+    }
+
+    /**
+     * Commit the Flight Recorder event for a bulk translation call if it is
+     * being recorded.
+     * @param event begun at the start of the call.
+     * @param characters number of characters translated.
+     * @param before total letters translated at the start of the call.
+     */
+    private void commitBatch(TranslationEvent event, long characters, long before) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+
+        event.configurationId = getConfigurationId();
+        event.characters = characters;
+        event.letters = translated - before;
+        event.compiled = compiled != null;
+        event.commit();
+    }
+
+    /**
+     * Add the counts accumulated since the last call to MachineStats.
+     */
+    private void publishStats() {
+        if (letters == 0)
+            return;
+
+        MachineStats.getInstance().addTranslation(letters, doubleSteps, leftSteps);
+        letters = 0;
+        doubleSteps = 0;
+        leftSteps = 0;
+    }
+
+
+    /************************************************************************
+     * Signal tracing support code.
+     */
+
+    private static final int PLUGBOARD_STAGE = ROTOR_COUNT;
+    private static final int REFLECTOR_STAGE = ROTOR_COUNT + 1;
+
+    /**
+     * @return the SignalTrace in use, null if not in show mode.
+     */
+    public SignalTrace getTrace() { return trace; }
+
+    /**
+     * Start tracing every key press, replacing any current trace.
+     * @param capacity of the trace buffer in events.
+     * @param out stream to print the trace to.
+     */
+    public void startTrace(int capacity, PrintStream out) {
+        stopTrace();
+
+        String[] stages = new String[REFLECTOR_STAGE + 1];
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            stages[i] = rotors[i].getId();
+        stages[PLUGBOARD_STAGE] = plugboard.getId();
+        stages[REFLECTOR_STAGE] = reflector.getId();
+
+        trace = new SignalTrace(stages, capacity, out);
+    }
+
+    /**
+     * Stop tracing once everything traced so far has been printed.
+     */
+    public void stopTrace() {
+        if (trace != null) {
+            trace.close();
+            trace = null;
+        }
+    }
+
+    private int traceRightToLeft(int id, int index) {
+        final Rotor rotor = rotors[id];
+        final int output = rotor.swapRightToLeft(index);
+        trace.stage(id, positions[id], index, output);
+
+        return output;
+    }
+
+    private int traceLeftToRight(int id, int index) {
+        final Rotor rotor = rotors[id];
+        final int output = rotor.swapLeftToRight(index);
+        trace.stage(id, positions[id], index, output);
+
+        return output;
+    }
+
+    /**
+     * Translates an index through every active Mapper without advancing the
+     * Rotors, recording each step in the SignalTrace.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    private int translateTraced(int index) {
+        // Plugboard and active Rotors both ways, plus the reflector.
+        trace.key(index, 2 * stack.length + 3);
+
+        int output = plugboard.swapRightToLeft(index);
+        trace.stage(PLUGBOARD_STAGE, index, output);
+
+        output = traceRightToLeft(RIGHT, output);
+        output = traceRightToLeft(MIDDLE, output);
+        output = traceRightToLeft(LEFT, output);
+
+        if (fourthWheel)
+            output = traceRightToLeft(SLOW, output);
+
+        index = output;
+        output = reflector.swapRightToLeft(index);
+        trace.stage(REFLECTOR_STAGE, index, output);
+
+        if (fourthWheel)
+            output = traceLeftToRight(SLOW, output);
+
+        output = traceLeftToRight(LEFT, output);
+        output = traceLeftToRight(MIDDLE, output);
+        output = traceLeftToRight(RIGHT, output);
+
+        index = output;
+        output = plugboard.swapLeftToRight(index);
+        trace.stage(PLUGBOARD_STAGE, index, output);
+
+        trace.lamp(output);
+
+        return output;
+    }
+
+
+    /************************************************************************
+     * Specialized pipeline support code.
+     */
+
+    public boolean isSpecialized() { return pipeline != null; }
+
+    /**
+     * Select a Pipeline generated for this Engine's settings, which quiet 
+     * translation uses in place of the Mappers. A CompiledTable, if set, 
+     * takes precedence.
+     * @param generated Pipeline for this Engine's settings, or null to 
+     * revert to normal translation.
+     */
+    public void setPipeline(Pipeline generated) { pipeline = generated; }
+
+
+    /************************************************************************
+     * Translation support code.
+     */
+
+    /**
+     * Advance the identified Rotor by one position.
+     * @param id of Rotor (SLOW to RIGHT).
+     */
+    private void step(int id) {
+        int index = positions[id] + 1;
+        if (index == 26)
+            index = 0;
+
+        setPosition(id, index);
+    }
+
+    /**
+     * Advances the right rotor then checks the other rotors. The notch point
+     * of the middle rotor is used to check for a step of the left rotor and a
+     * double step of the middle rotor. The turnover point of the right rotor
+     * is used to check for a step of the middle rotor.
+     * @return NOTCH_STEP and/or TURNOVER_STEP flags for the steps taken.
+     */
+    int stepRotors() {
+        int steps = 0;
+
+        // Normal step of the right rotor.
+        step(RIGHT);
+
+        if (rotors[MIDDLE].isNotchPoint(positions[MIDDLE])) {
+            // Double step of the middle rotor, normal step of the left rotor.
+            step(MIDDLE);
+            step(LEFT);
+            steps |= NOTCH_STEP;
+        }
+
+        if (rotors[RIGHT].isTurnoverPoint(positions[RIGHT])) {
+            // The right rotor takes the middle rotor one step further.
+            step(MIDDLE);
+            steps |= TURNOVER_STEP;
+        }
+
+        return steps;
+    }
+
+    /**
+     * Advances the Rotors for a key press, as stepRotors() does, without 
+     * counting a translated letter.
+     */
+    public void advanceRotors() { stepRotors(); }
+
+    /**
+     * Translates an index (numerical equivalent of the letter) to another for
+     * every active Mapper without advancing the Rotors.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    public int translateIndex(int index) {
+        if (trace == null)
+            return translateQuiet(index);
+
+        return translateTraced(index);
+    }
+
+    /**
+     * Advance the Rotors and translate an index (numerical equivalent of the
+     * letter) through the pipeline.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    public int translate(int index) {
+        if ((compiled != null) && (trace == null)) {
+            final int output = translateCompiled(index);
+            flushState();
+
+            return output;
+        }
+
+        countSteps(stepRotors());
+        publishStats();
+
+        if (trace != null)
+            return translateTraced(index);
+
+        if (pipeline != null)
+            return pipeline.translate(positions, index);
+
+        return translateQuiet(index);
+    }
+
+
+
+    /************************************************************************
+     * Bulk translation support code.
+     */
+
+    /**
+     * Build the composite permutation of every active Mapper to the left of 
+     * the right rotor, i.e. middle to reflector and back to middle. This only 
+     * changes when a Rotor other than the right rotor moves.
+     */
+    private void buildInner() {
+        final Rotor[] stack = this.stack;
+
+        for (int letter = 0; letter < 26; ++letter) {
+            int index = letter;
+
+            for (int i = 1; i < stack.length; ++i)
+                index = stack[i].swapRightToLeft(index);
+
+            index = reflector.swapRightToLeft(index);
+
+            for (int i = stack.length - 1; i >= 1; --i)
+                index = stack[i].swapLeftToRight(index);
+
+            inner[letter] = index;
+        }
+
+        innerValid = true;
+    }
+
+    /**
+     * Translates an index through the pipeline with no show support, using 
+     * the cached inner permutation which is rebuilt only when needed.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    private int translateQuiet(int index) {
+        if (!innerValid)
+            buildInner();
+
+        final Rotor right = stack[0];
+
+        index = plugboard.swapRightToLeft(index);
+        index = right.swapRightToLeft(index);
+        index = inner[index];
+        index = right.swapLeftToRight(index);
+
+        return plugboard.swapLeftToRight(index);
+    }
+
+    /**
+     * Fill a caller supplied array with the permutation of the whole machine 
+     * at the current positions, without stepping.
+     * @param output array of 26 to receive the permutation.
+     */
+    public void getPermutation(int[] output) {
+        for (int i = 0; i < 26; ++i)
+            output[i] = translateQuiet(i);
+    }
+
+    /**
+     * Advance the Rotors and translate a character if it is a letter. Lower 
+     * case letters are translated to upper case, anything else is passed 
+     * through unchanged without advancing the Rotors.
+     * @param c character to translate.
+     * @param quiet true to bypass the show support.
+     * @return the translated character.
+     */
+    private int translateChar(int c, boolean quiet) {
+        int index;
+        if ((c >= 'A') && (c <= 'Z'))
+            index = c - 'A';
+        else if ((c >= 'a') && (c <= 'z'))
+            index = c - 'a';
+        else
+            return c;
+
+        if (!quiet)
+            return translate(index) + 'A';
+
+        if (compiled != null)
+            return translateCompiled(index) + 'A';
+
+        countSteps(stepRotors());
+        if (pipeline != null)
+            return pipeline.translate(positions, index) + 'A';
+
+        return translateQuiet(index) + 'A';
+    }
+
+    /**
+     * Translate a sequence of characters into a caller supplied buffer. 
+     * Letters are translated (lower case to upper case) and anything else is
+     * passed through unchanged.
+     * @param input characters to translate.
+     * @param output buffer to receive the translation.
+     * @param offset into output of the first translated character.
+     * @return the number of characters written.
+     */
+    public int translate(CharSequence input, char[] output, int offset) {
+        final int length = input.length();
+        TranslationEvent event = new TranslationEvent();
+        event.begin();
+        final long before = translated;
+
+        if (trace != null) {
+            for (int i = 0; i < length; ++i)
+                output[offset + i] = (char)translateChar(input.charAt(i), false);
+        } else {
+            for (int i = 0; i < length; ++i)
+                output[offset + i] = (char)translateChar(input.charAt(i), true);
+        }
+        flushState();
+        commitBatch(event, length, before);
+
+        return length;
+    }
+
+    /**
+     * Translate a range of characters into a caller supplied buffer, which 
+     * may be the same array. Letters are translated (lower case to upper 
+     * case) and anything else is passed through unchanged.
+     * @param input characters to translate.
+     * @param inOffset into input of the first character to translate.
+     * @param output buffer to receive the translation.
+     * @param outOffset into output of the first translated character.
+     * @param length number of characters to translate.
+     */
+    public void translate(char[] input, int inOffset, char[] output, int outOffset, int length) {
+        TranslationEvent event = new TranslationEvent();
+        event.begin();
+        final long before = translated;
+
+        if (trace != null) {
+            for (int i = 0; i < length; ++i)
+                output[outOffset + i] = (char)translateChar(input[inOffset + i], false);
+        } else {
+            for (int i = 0; i < length; ++i)
+                output[outOffset + i] = (char)translateChar(input[inOffset + i], true);
+        }
+        flushState();
+        commitBatch(event, length, before);
+    }
+
+    /**
+     * Translate a range of ASCII bytes into a caller supplied buffer, which 
+     * may be the same array. Letters are translated (lower case to upper 
+     * case) and anything else is passed through unchanged.
+     * @param input bytes to translate.
+     * @param inOffset into input of the first byte to translate.
+     * @param output buffer to receive the translation.
+     * @param outOffset into output of the first translated byte.
+     * @param length number of bytes to translate.
+     */
+    public void translate(byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        TranslationEvent event = new TranslationEvent();
+        event.begin();
+        final long before = translated;
+
+        if (trace != null) {
+            for (int i = 0; i < length; ++i)
+                output[outOffset + i] = (byte)translateChar(input[inOffset + i], false);
+        } else {
+            for (int i = 0; i < length; ++i)
+                output[outOffset + i] = (byte)translateChar(input[inOffset + i], true);
+        }
+        flushState();
+        commitBatch(event, length, before);
+    }
+
+    /**
+     * Translate the remaining ASCII bytes of the input buffer into the output
+     * buffer using absolute access, so direct buffers are processed without 
+     * any intermediate copy. Both buffer positions are advanced.
+     * @param input buffer to translate.
+     * @param output buffer to receive the translation, which must have at 
+     * least input.remaining() bytes remaining.
+     * @return the number of bytes translated.
+     */
+    public int translate(ByteBuffer input, ByteBuffer output) {
+        final int length = input.remaining();
+        final int in = input.position();
+        final int out = output.position();
+        TranslationEvent event = new TranslationEvent();
+        event.begin();
+        final long before = translated;
+
+        if (trace != null) {
+            for (int i = 0; i < length; ++i)
+                output.put(out + i, (byte)translateChar(input.get(in + i), false));
+        } else {
+            for (int i = 0; i < length; ++i)
+                output.put(out + i, (byte)translateChar(input.get(in + i), true));
+        }
+        flushState();
+        commitBatch(event, length, before);
+
+        input.position(in + length);
+        output.position(out + length);
+
+        return length;
+    }
+
+}
@@ -0,0 +1,174 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaCipherSpi is the CipherSpi registered by EnigmaProvider. It wraps an
+ * Engine built from an EnigmaKey and translates ASCII bytes, passing anything
+ * that is not a letter through unchanged. Enigma is reciprocal, so encrypt and
+ * decrypt are the same operation. ByteBuffer updates use absolute access so
+ * direct buffers are processed without copying. doFinal() returns the
+ * machine to the start positions given by the key.
+ */
+package phillockett65.Enigma;
+
+import java.nio.ByteBuffer;
+import java.security.AlgorithmParameters;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.CipherSpi;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+public class EnigmaCipherSpi extends CipherSpi {
+
+    private Engine engine = null;
+    private final int[] start = new int[Engine.ROTOR_COUNT];
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    @Override
+    protected void engineSetMode(String mode) throws NoSuchAlgorithmException {
+        if ((!"NONE".equalsIgnoreCase(mode)) && (!"ECB".equalsIgnoreCase(mode)))
+            throw new NoSuchAlgorithmException("Unsupported mode: " + mode);
+    }
+
+    @Override
+    protected void engineSetPadding(String padding) throws NoSuchPaddingException {
+        if (!"NoPadding".equalsIgnoreCase(padding))
+            throw new NoSuchPaddingException("Unsupported padding: " + padding);
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, SecureRandom random) throws InvalidKeyException {
+        engine = EnigmaKey.buildEngine(key);
+        for (int i = 0; i < Engine.ROTOR_COUNT; ++i)
+            start[i] = engine.getPosition(i);
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, AlgorithmParameterSpec params, SecureRandom random)
+        throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (params != null)
+            throw new InvalidAlgorithmParameterException("No parameters expected");
+
+        engineInit(opmode, key, random);
+    }
+
+    @Override
+    protected void engineInit(int opmode, Key key, AlgorithmParameters params, SecureRandom random)
+        throws InvalidKeyException, InvalidAlgorithmParameterException {
+        if (params != null)
+            throw new InvalidAlgorithmParameterException("No parameters expected");
+
+        engineInit(opmode, key, random);
+    }
+
+
+    /************************************************************************
+     * Getters support code.
+     */
+
+    @Override
+    protected int engineGetBlockSize() { return 0; }
+
+    @Override
+    protected int engineGetOutputSize(int inputLen) { return inputLen; }
+
+    @Override
+    protected byte[] engineGetIV() { return null; }
+
+    @Override
+    protected AlgorithmParameters engineGetParameters() { return null; }
+
+
+    /************************************************************************
+     * Translation support code.
+     */
+
+    private Engine getEngine() {
+        if (engine == null)
+            throw new IllegalStateException("Cipher not initialized");
+
+        return engine;
+    }
+
+    private void reset() { engine.setPositions(start); }
+
+    @Override
+    protected byte[] engineUpdate(byte[] input, int inputOffset, int inputLen) {
+        byte[] output = new byte[inputLen];
+        getEngine().translate(input, inputOffset, output, 0, inputLen);
+
+        return output;
+    }
+
+    @Override
+    protected int engineUpdate(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+        throws ShortBufferException {
+        if (output.length - outputOffset < inputLen)
+            throw new ShortBufferException("Output buffer too small");
+
+        getEngine().translate(input, inputOffset, output, outputOffset, inputLen);
+
+        return inputLen;
+    }
+
+    @Override
+    protected int engineUpdate(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        if (output.remaining() < input.remaining())
+            throw new ShortBufferException("Output buffer too small");
+
+        return getEngine().translate(input, output);
+    }
+
+    @Override
+    protected byte[] engineDoFinal(byte[] input, int inputOffset, int inputLen) {
+        final byte[] output = engineUpdate(input, inputOffset, inputLen);
+        reset();
+
+        return output;
+    }
+
+    @Override
+    protected int engineDoFinal(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+        throws ShortBufferException {
+        final int count = engineUpdate(input, inputOffset, inputLen, output, outputOffset);
+        reset();
+
+        return count;
+    }
+
+    @Override
+    protected int engineDoFinal(ByteBuffer input, ByteBuffer output) throws ShortBufferException {
+        final int count = engineUpdate(input, output);
+        reset();
+
+        return count;
+    }
+
+}
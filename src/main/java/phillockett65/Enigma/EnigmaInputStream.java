@@ -0,0 +1,117 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaInputStream is a FilterInputStream that translates the ASCII bytes
+ * read from the underlying stream using an Engine. Letters are translated (lower
+ * case to upper case) and anything else is passed through unchanged. Bulk
+ * reads are translated in place a block at a time.
+ */
+package phillockett65.Enigma;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class EnigmaInputStream extends FilterInputStream {
+
+    private final Engine engine;
+    private final byte[] single = new byte[1];
+
+
+    /**
+     * Constructor.
+     * @param in underlying stream.
+     * @param engine positioned at the start of the data.
+     */
+    public EnigmaInputStream(InputStream in, Engine engine) {
+        super(in);
+        this.engine = engine;
+    }
+
+    /**
+     * Constructor.
+     * @param in underlying stream.
+     * @param config settings to build the Engine from.
+     */
+    public EnigmaInputStream(InputStream in, Configuration config) {
+        this(in, config.buildEngine());
+    }
+
+    public Engine getEngine() { return engine; }
+
+    @Override
+    public int read() throws IOException {
+        final int c = in.read();
+        if (c == -1)
+            return -1;
+
+        single[0] = (byte)c;
+        engine.translate(single, 0, single, 0, 1);
+
+        return single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int count = in.read(b, off, len);
+        if (count > 0)
+            engine.translate(b, off, b, off, count);
+
+        return count;
+    }
+
+    /**
+     * Skip bytes by reading them, so that the Engine steps for any skipped 
+     * letters.
+     * @param n number of bytes to skip.
+     * @return the number of bytes skipped, which is 0 if n is not positive.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+
+        byte[] buffer = new byte[(int)Math.min(n, 8192)];
+        long skipped = 0;
+
+        while (skipped < n) {
+            final int count = read(buffer, 0, (int)Math.min(n - skipped, buffer.length));
+            if (count == -1)
+                break;
+
+            skipped += count;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() { return false; }
+
+    @Override
+    public void mark(int readlimit) {}
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
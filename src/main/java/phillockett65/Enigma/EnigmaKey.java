@@ -0,0 +1,95 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaKey is a SecretKey that captures a machine Configuration for use with
+ * the EnigmaProvider Cipher. The encoded form is the UTF-8 text produced by
+ * Configuration.encode(), which holds the reflector, wheel order, ring
+ * settings, start positions and plugboard, so an equivalent key can also be
+ * supplied as a SecretKeySpec with the algorithm "Enigma".
+ */
+package phillockett65.Enigma;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.Key;
+
+import javax.crypto.SecretKey;
+
+public class EnigmaKey implements SecretKey {
+    private static final long serialVersionUID = 1L;
+
+    public static final String ALGORITHM = "Enigma";
+
+    private final String settings;
+
+
+    /**
+     * Constructor.
+     * @param config settings to capture.
+     */
+    public EnigmaKey(Configuration config) {
+        settings = config.encode();
+    }
+
+    /**
+     * Constructor.
+     * @param encoded settings as produced by getEncoded().
+     */
+    public EnigmaKey(byte[] encoded) {
+        settings = new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getAlgorithm() { return ALGORITHM; }
+
+    @Override
+    public String getFormat() { return "RAW"; }
+
+    @Override
+    public byte[] getEncoded() { return settings.getBytes(StandardCharsets.UTF_8); }
+
+    /**
+     * @return a new Configuration decoded from the key.
+     */
+    public Configuration getConfiguration() { return Configuration.decode(settings); }
+
+    /**
+     * Build an Engine from any Key with the "Enigma" algorithm.
+     * @param key to use.
+     * @return the new Engine positioned at the start positions.
+     * @throws InvalidKeyException if the key is not a valid Enigma key.
+     */
+    public static Engine buildEngine(Key key) throws InvalidKeyException {
+        if ((key == null) || (!ALGORITHM.equalsIgnoreCase(key.getAlgorithm())))
+            throw new InvalidKeyException("Expected an " + ALGORITHM + " key");
+
+        final byte[] encoded = key.getEncoded();
+        if (encoded == null)
+            throw new InvalidKeyException("Key has no encoding");
+
+        try {
+            return new EnigmaKey(encoded).getConfiguration().buildEngine();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidKeyException(e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaOutputStream is a FilterOutputStream that translates ASCII bytes using
+ * an Engine before writing them to the underlying stream. Letters are
+ * translated (lower case to upper case) and anything else is passed through
+ * unchanged. Bulk writes are translated through an internal buffer a block
+ * at a time, so the caller's array is not modified.
+ */
+package phillockett65.Enigma;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class EnigmaOutputStream extends FilterOutputStream {
+
+    private static final int BLOCK = 8192;
+
+    private final Engine engine;
+    private final byte[] buffer = new byte[BLOCK];
+
+
+    /**
+     * Constructor.
+     * @param out underlying stream.
+     * @param engine positioned at the start of the data.
+     */
+    public EnigmaOutputStream(OutputStream out, Engine engine) {
+        super(out);
+        this.engine = engine;
+    }
+
+    /**
+     * Constructor.
+     * @param out underlying stream.
+     * @param config settings to build the Engine from.
+     */
+    public EnigmaOutputStream(OutputStream out, Configuration config) {
+        this(out, config.buildEngine());
+    }
+
+    public Engine getEngine() { return engine; }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[0] = (byte)b;
+        engine.translate(buffer, 0, buffer, 0, 1);
+        out.write(buffer[0]);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            final int count = Math.min(len, BLOCK);
+            engine.translate(b, off, buffer, 0, count);
+            out.write(buffer, 0, count);
+
+            off += count;
+            len -= count;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaProvider is a JCA Provider that exposes the machine as the Cipher
+ * "Enigma", also available as "Enigma/NONE/NoPadding". Keys are EnigmaKeys or
+ * SecretKeySpecs with the "Enigma" algorithm holding encoded Configuration
+ * text.
+ */
+package phillockett65.Enigma;
+
+import java.security.Provider;
+
+public class EnigmaProvider extends Provider {
+    private static final long serialVersionUID = 1L;
+
+    public static final String NAME = "Enigma2";
+
+    /**
+     * Constructor.
+     */
+    public EnigmaProvider() {
+        super(NAME, "1.0", "Enigma2 machine simulator Cipher");
+
+        put("Cipher." + EnigmaKey.ALGORITHM, EnigmaCipherSpi.class.getName());
+        put("Cipher." + EnigmaKey.ALGORITHM + " SupportedModes", "NONE|ECB");
+        put("Cipher." + EnigmaKey.ALGORITHM + " SupportedPaddings", "NOPADDING");
+    }
+
+}
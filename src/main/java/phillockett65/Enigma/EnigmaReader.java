@@ -0,0 +1,122 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaReader is a FilterReader that translates the characters read from the
+ * underlying Reader using an Engine. Letters are translated (lower case to
+ * upper case) and anything else is passed through unchanged. Bulk reads are
+ * translated in place a block at a time.
+ */
+package phillockett65.Enigma;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+public class EnigmaReader extends FilterReader {
+
+    private final Engine engine;
+    private final char[] single = new char[1];
+
+
+    /**
+     * Constructor.
+     * @param in underlying Reader.
+     * @param engine positioned at the start of the data.
+     */
+    public EnigmaReader(Reader in, Engine engine) {
+        super(in);
+        this.engine = engine;
+    }
+
+    /**
+     * Constructor.
+     * @param in underlying Reader.
+     * @param config settings to build the Engine from.
+     */
+    public EnigmaReader(Reader in, Configuration config) {
+        this(in, config.buildEngine());
+    }
+
+    public Engine getEngine() { return engine; }
+
+    @Override
+    public int read() throws IOException {
+        final int c = in.read();
+        if (c == -1)
+            return -1;
+
+        single[0] = (char)c;
+        engine.translate(single, 0, single, 0, 1);
+
+        return single[0];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        final int count = in.read(cbuf, off, len);
+        if (count > 0)
+            engine.translate(cbuf, off, cbuf, off, count);
+
+        return count;
+    }
+
+    /**
+     * Skip characters by reading them, so that the Engine steps for any 
+     * skipped letters.
+     * @param n number of characters to skip.
+     * @return the number of characters skipped.
+     * @throws IllegalArgumentException if n is negative.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n < 0)
+            throw new IllegalArgumentException("Negative skip length: " + n);
+        if (n == 0)
+            return 0;
+
+        char[] buffer = new char[(int)Math.min(n, 8192)];
+        long skipped = 0;
+
+        while (skipped < n) {
+            final int count = read(buffer, 0, (int)Math.min(n - skipped, buffer.length));
+            if (count == -1)
+                break;
+
+            skipped += count;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() { return false; }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
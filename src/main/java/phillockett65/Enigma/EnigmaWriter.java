@@ -0,0 +1,95 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EnigmaWriter is a FilterWriter that translates characters using an Engine
+ * before writing them to the underlying Writer. Letters are translated (lower
+ * case to upper case) and anything else is passed through unchanged. Bulk
+ * writes are translated through an internal buffer a block at a time, so the
+ * caller's data is not modified.
+ */
+package phillockett65.Enigma;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+public class EnigmaWriter extends FilterWriter {
+
+    private static final int BLOCK = 8192;
+
+    private final Engine engine;
+    private final char[] buffer = new char[BLOCK];
+
+
+    /**
+     * Constructor.
+     * @param out underlying Writer.
+     * @param engine positioned at the start of the data.
+     */
+    public EnigmaWriter(Writer out, Engine engine) {
+        super(out);
+        this.engine = engine;
+    }
+
+    /**
+     * Constructor.
+     * @param out underlying Writer.
+     * @param config settings to build the Engine from.
+     */
+    public EnigmaWriter(Writer out, Configuration config) {
+        this(out, config.buildEngine());
+    }
+
+    public Engine getEngine() { return engine; }
+
+    @Override
+    public void write(int c) throws IOException {
+        buffer[0] = (char)c;
+        engine.translate(buffer, 0, buffer, 0, 1);
+        out.write(buffer[0]);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            final int count = Math.min(len, BLOCK);
+            engine.translate(cbuf, off, buffer, 0, count);
+            out.write(buffer, 0, count);
+
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        while (len > 0) {
+            final int count = Math.min(len, BLOCK);
+            str.getChars(off, off + count, buffer, 0);
+            engine.translate(buffer, 0, buffer, 0, count);
+            out.write(buffer, 0, count);
+
+            off += count;
+            len -= count;
+        }
+    }
+
+}
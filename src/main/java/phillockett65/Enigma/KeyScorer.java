@@ -0,0 +1,59 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KeyScorer is the interface used by KeySearch to score a trial decryption,
+ * higher scores being better. Implementations are shared by every worker
+ * thread so must not hold mutable state.
+ */
+package phillockett65.Enigma;
+
+@FunctionalInterface
+public interface KeyScorer {
+
+    /**
+     * Score a trial decryption.
+     * @param text letter indices of the decryption.
+     * @return the score, higher is better.
+     */
+    public double score(int[] text);
+
+    /**
+     * @return a KeyScorer that uses the index of coincidence.
+     */
+    public static KeyScorer coincidence() {
+        return text -> {
+            int[] counts = new int[26];
+            for (int letter : text)
+                counts[letter]++;
+
+            return CoincidenceSearch.indexOfCoincidence(counts, text.length);
+        };
+    }
+
+    /**
+     * @param ngrams table used for scoring.
+     * @return a KeyScorer that uses n-gram log probabilities.
+     */
+    public static KeyScorer ngrams(NGramTable ngrams) {
+        return ngrams::score;
+    }
+
+}
@@ -0,0 +1,333 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KeySearch is a class that drives an exhaustive search of a KeySpace. The
+ * work units are shared out by a ForkJoinPool, which splits ranges of units
+ * and lets idle threads steal work. Each unit decrypts the message with no
+ * plugs from every start position and passes the text to a pluggable
+ * KeyScorer. The best keys are kept in a TopList and, if a Checkpoint is
+ * given, each completed unit is recorded so that a search can be resumed.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class KeySearch {
+
+    private final int[] cipher;
+    private final KeySpace space;
+    private final KeyScorer scorer;
+    private final int capacity;
+    private final TopList results;
+
+    private Checkpoint checkpoint = null;
+    private final AtomicLong completed = new AtomicLong();
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param cipherText intercepted message, non-letters are ignored.
+     * @param space settings to search.
+     * @param scorer used to score each decryption.
+     * @param capacity number of results to keep.
+     */
+    public KeySearch(String cipherText, KeySpace space, KeyScorer scorer, int capacity) {
+        this.cipher = Mapper.lettersToIndices(cipherText);
+        this.space = space;
+        this.scorer = scorer;
+        this.capacity = capacity;
+        this.results = new TopList(capacity);
+
+        if (cipher.length == 0)
+            throw new IllegalArgumentException("Message is empty");
+    }
+
+    /**
+     * @return the letters of the message.
+     */
+    public String getCipherText() {
+        StringBuilder output = new StringBuilder(cipher.length);
+        for (int c : cipher)
+            output.append((char)Mapper.indexToChar(c));
+
+        return output.toString();
+    }
+
+    /**
+     * @return a String that identifies the search, for a Checkpoint.
+     */
+    public String describe() {
+        return "KeySearch " + space.describe() + ";length=" + cipher.length +
+            ";message=" + Integer.toHexString(Arrays.hashCode(cipher));
+    }
+
+    /**
+     * Record progress in the given Checkpoint, skipping the units it has 
+     * already completed.
+     * @param checkpoint for the search, or null.
+     */
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        if (checkpoint != null)
+            for (Candidate candidate : checkpoint.getResults())
+                results.offer(candidate);
+    }
+
+    public KeySpace getSpace() { return space; }
+    public int getCapacity() { return capacity; }
+    public long getCompleted() { return completed.get(); }
+
+
+    /************************************************************************
+     * Search support code.
+     */
+
+    /**
+     * Test every start position of a work unit.
+     * @param unit index of the work unit.
+     * @param best list to add the results to.
+     */
+    public void searchUnit(long unit, TopList best) {
+        SearchUnitEvent event = new SearchUnitEvent();
+        event.begin();
+
+        final KeySpace.Unit work = space.getUnit(unit);
+        final Engine engine = work.buildEngine();
+        final CompiledTable table = CompiledTable.build(engine);
+        final int[] plain = new int[cipher.length];
+
+        for (int start = 0; start < CompiledTable.STATES; ++start) {
+            int state = start;
+            for (int i = 0; i < cipher.length; ++i) {
+                state = table.next(state);
+                plain[i] = table.translate(state, cipher[i]);
+            }
+
+            final double score = scorer.score(plain);
+            if (best.isCandidate(score))
+                best.offer(new Candidate(score, work.toConfiguration(start)));
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.unit = unit;
+            event.configurationId = engine.getConfigurationId();
+            event.keys = CompiledTable.STATES;
+            event.letters = (long)CompiledTable.STATES * cipher.length;
+            event.commit();
+        }
+    }
+
+    /**
+     * Search a work unit unless already completed, then record it.
+     * @param unit index of the work unit.
+     */
+    private void runUnit(long unit) {
+        if ((checkpoint != null) && checkpoint.isDone(unit))
+            return;
+
+        TopList best = new TopList(capacity);
+        searchUnit(unit, best);
+
+        final ArrayList<Candidate> found = best.getResults();
+        for (Candidate candidate : found)
+            results.offer(candidate);
+
+        if (checkpoint != null) {
+            try {
+                checkpoint.complete(unit, found);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        completed.incrementAndGet();
+    }
+
+    /**
+     * Task that splits a range of work units in half until a single unit
+     * remains.
+     */
+    private class UnitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        public UnitTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                runUnit(from);
+                return;
+            }
+
+            final long mid = (from + to) >>> 1;
+            invokeAll(new UnitTask(from, mid), new UnitTask(mid, to));
+        }
+    }
+
+    /**
+     * Search every work unit.
+     * @param pool used to run the work units.
+     * @return the best results, highest score first.
+     * @throws UncheckedIOException if the Checkpoint can not be written.
+     */
+    public ArrayList<Candidate> run(ForkJoinPool pool) {
+        final long count = space.getUnitCount();
+        if (count > 0)
+            pool.invoke(new UnitTask(0, count));
+
+        return results.getResults();
+    }
+
+    /**
+     * Search every work unit using the common pool.
+     * @return the best results, highest score first.
+     */
+    public ArrayList<Candidate> run() { return run(ForkJoinPool.commonPool()); }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: KeySearch [options] ciphertext");
+        System.err.println("Searches every wheel order, ring setting and start position of a message.");
+        System.err.println("  -f                  ciphertext is the name of a file holding the message");
+        System.err.println("  -r \"id,id\"          reflectors (default \"" + WheelOrders.DEFAULT_REFLECTOR + "\")");
+        System.err.println("  -4 \"Beta,Gamma\"     fourth wheels (default none)");
+        System.err.println("  -w \"I,II,III\"       rotors available (default \"" + String.join(",", WheelOrders.DEFAULT_WHEELS) + "\")");
+        System.err.println("  -g count            ring settings searched from the right, 0 to 2 (default 1)");
+        System.err.println("  -l file             score with n-gram tables written by NGramBuilder");
+        System.err.println("  -n order            n-gram length (default 3)");
+        System.err.println("  -k count            number of results to show (default 10)");
+        System.err.println("  -c file             checkpoint file, resumed if present");
+        System.err.println("  -t threads          number of threads (default all processors)");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        List<String> reflectors = Arrays.asList(WheelOrders.DEFAULT_REFLECTOR);
+        List<String> fourthWheels = Collections.emptyList();
+        List<String> wheels = Arrays.asList(WheelOrders.DEFAULT_WHEELS);
+        int ringRotors = 1;
+        String tables = null;
+        int order = 3;
+        int capacity = 10;
+        String checkpointFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean file = false;
+        String cipherText = null;
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-f": file = true; break;
+                case "-r": reflectors = KeySpace.splitList(args[++i]); break;
+                case "-4": fourthWheels = KeySpace.splitList(args[++i]); break;
+                case "-w": wheels = KeySpace.splitList(args[++i]); break;
+                case "-g": ringRotors = Integer.parseInt(args[++i]); break;
+                case "-l": tables = args[++i]; break;
+                case "-n": order = Integer.parseInt(args[++i]); break;
+                case "-k": capacity = Integer.parseInt(args[++i]); break;
+                case "-c": checkpointFile = args[++i]; break;
+                case "-t": threads = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-") || (cipherText != null))
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                    cipherText = arg;
+                }
+            }
+
+            if (cipherText == null)
+                throw new IllegalArgumentException("Expected ciphertext");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            if (file)
+                cipherText = new String(Files.readAllBytes(Paths.get(cipherText)));
+
+            final KeyScorer scorer = (tables == null) ? KeyScorer.coincidence() :
+                KeyScorer.ngrams(NGramTable.load(Paths.get(tables), order));
+            KeySearch search = new KeySearch(cipherText, new KeySpace(reflectors, fourthWheels, wheels, ringRotors), scorer, capacity);
+
+            ArrayList<Candidate> found;
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            if (checkpointFile == null) {
+                found = search.run(pool);
+            } else {
+                final Path path = Paths.get(checkpointFile);
+                try (Checkpoint checkpoint = new Checkpoint(path, search.describe())) {
+                    search.setCheckpoint(checkpoint);
+                    found = search.run(pool);
+                }
+            }
+            pool.shutdown();
+
+            for (Candidate candidate : found)
+                System.out.println(candidate);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getCause().getMessage());
+            System.exit(2);
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * KeySpace is a class that describes the settings covered by a KeySearch:
+ * the reflectors, the optional fourth wheels, the wheel orders and the number
+ * of rotors, counting from the right, whose ring settings are searched. The
+ * space is divided into work units of one reflector, fourth wheel position,
+ * wheel order and set of ring settings, each of which covers all 17,576 left,
+ * middle and right positions with a single CompiledTable. Units are numbered
+ * so that work can be shared out and recorded by index.
+ */
+package phillockett65.Enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class KeySpace {
+
+    private final List<String> reflectors;
+    private final List<String> fourthWheels;
+    private final List<String> wheels;
+    private final ArrayList<String[]> orders;
+    private final int ringRotors;
+
+    private final int slowCount;        // Fourth wheel choices and positions.
+    private final int ringCount;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param reflectors ids of the Reflectors, e.g. thin reflectors for a
+     * fourth wheel.
+     * @param fourthWheels ids of the fourth wheels, or empty for a 3 wheel
+     * machine.
+     * @param wheels ids of the Rotors available for the wheel order.
+     * @param ringRotors number of ring settings searched, from the right (0
+     * to 2), the rest are A.
+     * @throws IllegalArgumentException if any id is not in the Catalogue.
+     */
+    public KeySpace(List<String> reflectors, List<String> fourthWheels, List<String> wheels, int ringRotors) {
+        if (reflectors.isEmpty())
+            throw new IllegalArgumentException("No reflectors");
+        for (String id : reflectors)
+            if (Catalogue.getReflector(id) == null)
+                throw new IllegalArgumentException("Unknown reflector: " + id);
+        for (String id : fourthWheels)
+            if (Catalogue.getRotor(id) == null)
+                throw new IllegalArgumentException("Unknown rotor: " + id);
+        if ((ringRotors < 0) || (ringRotors > 2))
+            throw new IllegalArgumentException("Invalid number of ring settings: " + ringRotors);
+
+        this.reflectors = reflectors;
+        this.fourthWheels = fourthWheels;
+        this.wheels = wheels;
+        this.orders = WheelOrders.orders(wheels);
+        this.ringRotors = ringRotors;
+
+        slowCount = fourthWheels.isEmpty() ? 1 : fourthWheels.size() * 26;
+        ringCount = (ringRotors == 0) ? 1 : (ringRotors == 1) ? 26 : 26 * 26;
+    }
+
+    /**
+     * @return a String that identifies the space, for checking that saved
+     * work belongs to it.
+     */
+    public String describe() {
+        return "reflectors=" + String.join(",", reflectors) +
+            ";fourth=" + String.join(",", fourthWheels) +
+            ";wheels=" + String.join(",", wheels) +
+            ";rings=" + ringRotors;
+    }
+
+    /**
+     * Build a KeySpace from a String produced by describe().
+     * @param text description of the space.
+     * @return the new KeySpace.
+     * @throws IllegalArgumentException if the text is not valid.
+     */
+    public static KeySpace decode(String text) {
+        List<String> reflectors = null;
+        List<String> fourthWheels = null;
+        List<String> wheels = null;
+        int ringRotors = -1;
+
+        for (String field : text.split(";")) {
+            final int split = field.indexOf('=');
+            if (split == -1)
+                throw new IllegalArgumentException("Invalid field: " + field);
+
+            final String value = field.substring(split + 1);
+            switch (field.substring(0, split)) {
+            case "reflectors": reflectors = splitList(value); break;
+            case "fourth": fourthWheels = splitList(value); break;
+            case "wheels": wheels = splitList(value); break;
+            case "rings": ringRotors = Integer.parseInt(value); break;
+            default:
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+
+        if ((reflectors == null) || (fourthWheels == null) || (wheels == null))
+            throw new IllegalArgumentException("Incomplete key space: " + text);
+
+        return new KeySpace(reflectors, fourthWheels, wheels, ringRotors);
+    }
+
+    /**
+     * Split a comma separated list of ids.
+     * @param list of ids, e.g. "I,II,III".
+     * @return the ids, which is empty for a blank list.
+     */
+    public static List<String> splitList(String list) {
+        if (list.isBlank())
+            return new ArrayList<String>();
+
+        ArrayList<String> output = new ArrayList<String>();
+        for (String id : list.split(","))
+            output.add(id.trim());
+
+        return output;
+    }
+
+    /**
+     * @return the total number of work units.
+     */
+    public long getUnitCount() {
+        return (long)reflectors.size() * slowCount * orders.size() * ringCount;
+    }
+
+    /**
+     * @return the total number of keys, i.e. work units times positions.
+     */
+    public long getKeyCount() { return getUnitCount() * CompiledTable.STATES; }
+
+
+    /************************************************************************
+     * Work unit support code.
+     */
+
+    /**
+     * Work unit of the KeySpace, covering every left, middle and right 
+     * position.
+     */
+    public class Unit {
+        private final long index;
+        private final String reflector;
+        private final String fourthWheel;   // null for a 3 wheel machine.
+        private final int slow;
+        private final String[] order;
+        private final int[] rings;
+
+        private Unit(long index) {
+            this.index = index;
+
+            long rest = index;
+            final int ring = (int)(rest % ringCount);
+            rest /= ringCount;
+            order = orders.get((int)(rest % orders.size()));
+            rest /= orders.size();
+            final int slowIndex = (int)(rest % slowCount);
+            rest /= slowCount;
+            reflector = reflectors.get((int)rest);
+
+            fourthWheel = fourthWheels.isEmpty() ? null : fourthWheels.get(slowIndex / 26);
+            slow = slowIndex % 26;
+            rings = new int[] { 0, ring / 26, ring % 26 };
+        }
+
+        public long getIndex() { return index; }
+
+        /**
+         * Build an Engine with no plugs for the unit, with the fourth wheel 
+         * positioned and the other rotors at position 0.
+         * @return the new Engine.
+         */
+        public Engine buildEngine() {
+            final String[] wheels = { (fourthWheel == null) ? order[0] : fourthWheel, order[0], order[1], order[2] };
+            final int[] settings = { 0, rings[0], rings[1], rings[2] };
+
+            Engine engine = new Engine(Mapper.initThroughMap(26), Catalogue.getReflector(reflector).getMap(),
+                wheels, settings, fourthWheel != null);
+            engine.setPosition(Engine.SLOW, slow);
+
+            return engine;
+        }
+
+        /**
+         * Build the Configuration of a key in the unit.
+         * @param state index of the left, middle and right positions.
+         * @return the new Configuration.
+         */
+        public Configuration toConfiguration(int state) {
+            Configuration config = Candidate.toConfiguration(reflector, order, rings, state);
+            if (fourthWheel != null) {
+                config.setFourthWheel(true);
+                config.setRotorState(Engine.SLOW, fourthWheel, 0, slow);
+            }
+
+            return config;
+        }
+    }
+
+    /**
+     * @param index of a work unit, from 0 to getUnitCount() - 1.
+     * @return the work unit.
+     */
+    public Unit getUnit(long index) {
+        if ((index < 0) || (index >= getUnitCount()))
+            throw new IndexOutOfBoundsException("Invalid unit: " + index);
+
+        return new Unit(index);
+    }
+
+}
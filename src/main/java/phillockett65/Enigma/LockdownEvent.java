@@ -0,0 +1,52 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LockdownEvent is the Java Flight Recorder event committed by
+ * Model.lockdownSettings(), covering the construction of the Engine and any
+ * specialized pipeline or compiled table for the new settings.
+ */
+package phillockett65.Enigma;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("phillockett65.Enigma.Lockdown")
+@Label("Settings Lockdown")
+@Category("Enigma")
+@Description("Settings locked down ready for translation")
+public class LockdownEvent extends jdk.jfr.Event {
+
+    @Label("Configuration Id")
+    @Description("Engine.getConfigurationId() of the new settings")
+    String configurationId;
+
+    @Label("Fourth Wheel")
+    boolean fourthWheel;
+
+    @Label("Compiled")
+    boolean compiled;
+
+    @Label("Specialized")
+    boolean specialized;
+
+}
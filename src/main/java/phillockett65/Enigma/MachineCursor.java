@@ -0,0 +1,158 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MachineCursor is the mutable part of a machine: the rotor positions. All
+ * the wiring is read from a shared MachineSpec, so a cursor is cheap to
+ * create and each thread can translate its own message under the same
+ * settings without locking. A cursor must not itself be shared between
+ * threads.
+ */
+package phillockett65.Enigma;
+
+public class MachineCursor {
+
+    private final MachineSpec spec;
+    private final int[] positions = new int[Engine.ROTOR_COUNT];
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param spec of the machine, positioned at its start positions.
+     */
+    public MachineCursor(MachineSpec spec) {
+        this.spec = spec;
+        spec.getStartPositions(positions);
+    }
+
+    /**
+     * Create an independent cursor for the same MachineSpec at the same
+     * positions.
+     * @return the new MachineCursor.
+     */
+    public MachineCursor copy() {
+        MachineCursor output = new MachineCursor(spec);
+        output.setPositions(positions);
+
+        return output;
+    }
+
+
+    /************************************************************************
+     * Getters and setters support code.
+     */
+
+    public MachineSpec getSpec() { return spec; }
+
+    public int getPosition(int id) { return positions[id]; }
+
+    /**
+     * Set the position (offset) of the identified Rotor.
+     * @param id of Rotor (SLOW to RIGHT).
+     * @param index (0..25) of the required position.
+     */
+    public void setPosition(int id, int index) { positions[id] = index % 26; }
+
+    /**
+     * Set the positions (offsets) of all the Rotors.
+     * @param indices array of ROTOR_COUNT positions indexed by SLOW to RIGHT.
+     */
+    public void setPositions(int[] indices) {
+        for (int i = 0; i < Engine.ROTOR_COUNT; ++i)
+            setPosition(i, indices[i]);
+    }
+
+    /**
+     * Return to the start positions of the MachineSpec.
+     */
+    public void reset() { spec.getStartPositions(positions); }
+
+
+    /************************************************************************
+     * Translation support code.
+     */
+
+    /**
+     * Advances the Rotors as Engine.advanceRotors() does.
+     */
+    public void advanceRotors() { spec.advance(positions); }
+
+    /**
+     * Advance the Rotors and translate an index (numerical equivalent of the
+     * letter).
+     * @param index to translate.
+     * @return the translated index.
+     */
+    public int translate(int index) {
+        spec.advance(positions);
+
+        return spec.translate(positions, index);
+    }
+
+    /**
+     * Advance the Rotors and translate a character if it is a letter. Lower
+     * case letters are translated to upper case, anything else is passed
+     * through unchanged without advancing the Rotors.
+     * @param c character to translate.
+     * @return the translated character.
+     */
+    private int translateChar(int c) {
+        if ((c >= 'A') && (c <= 'Z'))
+            return translate(c - 'A') + 'A';
+        if ((c >= 'a') && (c <= 'z'))
+            return translate(c - 'a') + 'A';
+
+        return c;
+    }
+
+    /**
+     * Translate a range of characters into a caller supplied buffer, which
+     * may be the same array. Letters are translated (lower case to upper
+     * case) and anything else is passed through unchanged.
+     * @param input characters to translate.
+     * @param inOffset into input of the first character to translate.
+     * @param output buffer to receive the translation.
+     * @param outOffset into output of the first translated character.
+     * @param length number of characters to translate.
+     */
+    public void translate(char[] input, int inOffset, char[] output, int outOffset, int length) {
+        for (int i = 0; i < length; ++i)
+            output[outOffset + i] = (char)translateChar(input[inOffset + i]);
+    }
+
+    /**
+     * Translate a message as Engine.translate() does.
+     * @param input message to translate.
+     * @return the translated message.
+     */
+    public String translate(CharSequence input) {
+        final int length = input.length();
+        char[] output = new char[length];
+        for (int i = 0; i < length; ++i)
+            output[i] = (char)translateChar(input.charAt(i));
+
+        return new String(output);
+    }
+
+}
@@ -0,0 +1,319 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MachineSpec is an immutable, validated description of a machine: the
+ * plugboard and reflector maps, the wiring of each rotor at every offset
+ * (with the ring settings applied), the stepping points and the start
+ * positions. It holds no rotor positions, so a single instance can be shared
+ * freely between threads, each of which translates through its own
+ * MachineCursor.
+ */
+package phillockett65.Enigma;
+
+public final class MachineSpec {
+
+    private static final int ROTOR_COUNT = Engine.ROTOR_COUNT;
+    private static final int SIZE = 26 * 26;   // Table entries per Rotor.
+
+    private final int[] plugboard;
+    private final int[] reflector;
+    private final boolean fourthWheel;
+    private final String[] wheels;
+    private final int[] rings;
+    private final int[] start;
+
+    private final int[] rightToLeft;        // [rotor][offset][index].
+    private final int[] leftToRight;        // [rotor][offset][index].
+    private final boolean[] notches;        // Of the middle rotor.
+    private final boolean[] turnovers;      // Of the right rotor.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. The wiring of each Rotor is copied at every offset, so
+     * the Rotors are not referenced afterwards, but they must not be used
+     * on another thread while this runs.
+     * @param plugboardMap map of the plugboard connections.
+     * @param reflectorMap map of the reflector.
+     * @param rotors array of ROTOR_COUNT Rotors indexed by SLOW to RIGHT.
+     * @param positions start positions indexed by SLOW to RIGHT.
+     * @param fourthWheel true if the SLOW Rotor is in use.
+     * @throws IllegalArgumentException if any of the settings are not valid.
+     */
+    public MachineSpec(int[] plugboardMap, int[] reflectorMap, Rotor[] rotors, int[] positions, boolean fourthWheel) {
+        plugboard = checkInvolution("plugboard", plugboardMap, true);
+        reflector = checkInvolution("reflector", reflectorMap, false);
+        this.fourthWheel = fourthWheel;
+
+        if ((rotors == null) || (rotors.length != ROTOR_COUNT))
+            throw new IllegalArgumentException("Expected " + ROTOR_COUNT + " rotors");
+        start = checkIndices("position", positions);
+
+        wheels = new String[ROTOR_COUNT];
+        rings = new int[ROTOR_COUNT];
+        rightToLeft = new int[ROTOR_COUNT * SIZE];
+        leftToRight = new int[ROTOR_COUNT * SIZE];
+
+        for (int id = 0; id < ROTOR_COUNT; ++id) {
+            final Rotor rotor = rotors[id];
+            if (rotor == null)
+                throw new IllegalArgumentException("Missing rotor: " + id);
+
+            wheels[id] = rotor.getId();
+            rings[id] = rotor.getRingSetting();
+
+            final int saved = rotor.getOffset();
+            for (int offset = 0; offset < 26; ++offset) {
+                rotor.setOffset(offset);
+
+                final int base = id * SIZE + offset * 26;
+                for (int i = 0; i < 26; ++i) {
+                    rightToLeft[base + i] = rotor.swapRightToLeft(i);
+                    leftToRight[base + i] = rotor.swapLeftToRight(i);
+                }
+            }
+            rotor.setOffset(saved);
+        }
+
+        notches = new boolean[26];
+        turnovers = new boolean[26];
+        for (int i = 0; i < 26; ++i) {
+            notches[i] = rotors[Engine.MIDDLE].isNotchPoint(i);
+            turnovers[i] = rotors[Engine.RIGHT].isTurnoverPoint(i);
+        }
+    }
+
+    /**
+     * Constructor that looks up the wiring in the Catalogue, for use without
+     * a Model.
+     * @param plugboardMap map of the plugboard connections.
+     * @param reflectorMap map of the reflector.
+     * @param wheels ids of the ROTOR_COUNT Rotors indexed by SLOW to RIGHT.
+     * @param rings ring setting indices of the Rotors.
+     * @param positions start positions indexed by SLOW to RIGHT.
+     * @param fourthWheel true if the SLOW Rotor is in use.
+     * @throws IllegalArgumentException if any of the settings are not valid.
+     */
+    public MachineSpec(int[] plugboardMap, int[] reflectorMap, String[] wheels, int[] rings, int[] positions, boolean fourthWheel) {
+        this(plugboardMap, reflectorMap, buildRotors(wheels, rings), positions, fourthWheel);
+    }
+
+    private static Rotor[] buildRotors(String[] wheels, int[] rings) {
+        if ((wheels == null) || (wheels.length != ROTOR_COUNT))
+            throw new IllegalArgumentException("Expected " + ROTOR_COUNT + " wheels");
+        checkIndices("ring setting", rings);
+
+        Rotor[] output = new Rotor[ROTOR_COUNT];
+        for (int i = 0; i < ROTOR_COUNT; ++i) {
+            final RotorData data = Catalogue.getRotor(wheels[i]);
+            if (data == null)
+                throw new IllegalArgumentException("Unknown rotor: " + wheels[i]);
+
+            output[i] = new Rotor(data, rings[i]);
+        }
+
+        return output;
+    }
+
+    /**
+     * Check that a map is a self-inverse permutation of the 26 letters.
+     * @param name of the map for error messages.
+     * @param map to check.
+     * @param fixed true if letters may map to themselves.
+     * @return a copy of the map.
+     * @throws IllegalArgumentException if the map is not valid.
+     */
+    private static int[] checkInvolution(String name, int[] map, boolean fixed) {
+        if ((map == null) || (map.length != 26))
+            throw new IllegalArgumentException("Invalid " + name + " map");
+
+        int[] output = map.clone();
+        for (int i = 0; i < 26; ++i) {
+            final int j = output[i];
+            if ((j < 0) || (j > 25) || (output[j] != i) || ((!fixed) && (j == i)))
+                throw new IllegalArgumentException("Invalid " + name + " map at " + Mapper.indexToLetter(i));
+        }
+
+        return output;
+    }
+
+    /**
+     * Check that an array holds ROTOR_COUNT indices in the range 0..25.
+     * @param name of the values for error messages.
+     * @param indices to check.
+     * @return a copy of the indices.
+     * @throws IllegalArgumentException if the indices are not valid.
+     */
+    private static int[] checkIndices(String name, int[] indices) {
+        if ((indices == null) || (indices.length != ROTOR_COUNT))
+            throw new IllegalArgumentException("Expected " + ROTOR_COUNT + " values for " + name);
+
+        for (int index : indices)
+            if ((index < 0) || (index > 25))
+                throw new IllegalArgumentException("Invalid " + name + ": " + index);
+
+        return indices.clone();
+    }
+
+
+    /************************************************************************
+     * Getters support code.
+     */
+
+    public boolean isFourthWheel() { return fourthWheel; }
+    public String getWheel(int id) { return wheels[id]; }
+    public int getRingSetting(int id) { return rings[id]; }
+    public int getStartPosition(int id) { return start[id]; }
+
+    public int[] getPlugboardMap() { return plugboard.clone(); }
+    public int[] getReflectorMap() { return reflector.clone(); }
+
+    /**
+     * @param id of Rotor (SLOW to RIGHT).
+     * @return a copy of the right to left wiring of the identified Rotor, 
+     * indexed by offset * 26 + index.
+     */
+    int[] getRightToLeft(int id) { return copyTable(rightToLeft, id); }
+
+    /**
+     * @param id of Rotor (SLOW to RIGHT).
+     * @return a copy of the left to right wiring of the identified Rotor, 
+     * indexed by offset * 26 + index.
+     */
+    int[] getLeftToRight(int id) { return copyTable(leftToRight, id); }
+
+    private static int[] copyTable(int[] table, int id) {
+        int[] output = new int[SIZE];
+        System.arraycopy(table, id * SIZE, output, 0, SIZE);
+
+        return output;
+    }
+
+    /**
+     * @return a new MachineCursor positioned at the start positions.
+     */
+    public MachineCursor newCursor() { return new MachineCursor(this); }
+
+    /**
+     * Build an Engine with the same settings, positioned at the start
+     * positions.
+     * @return the new Engine.
+     */
+    public Engine buildEngine() {
+        Engine engine = new Engine(plugboard.clone(), reflector.clone(), wheels, rings, fourthWheel);
+        engine.setPositions(start);
+
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+
+        final int first = fourthWheel ? Engine.SLOW : Engine.LEFT;
+        for (int i = first; i < ROTOR_COUNT; ++i) {
+            if (i != first)
+                output.append(' ');
+            output.append(wheels[i] + "(" + Mapper.indexToLetter(rings[i]) + ")");
+        }
+
+        return output.toString();
+    }
+
+
+    /************************************************************************
+     * Translation support code. Positions are always supplied by the
+     * caller, so none of these methods modify the MachineSpec.
+     */
+
+    /**
+     * Copy the start positions into a caller supplied array.
+     * @param positions array of ROTOR_COUNT to receive the start positions.
+     */
+    void getStartPositions(int[] positions) {
+        System.arraycopy(start, 0, positions, 0, ROTOR_COUNT);
+    }
+
+    private static int inc(int index) { return index == 25 ? 0 : index + 1; }
+
+    /**
+     * Advance the given positions using the same rules as
+     * Engine.advanceRotors().
+     * @param positions array of ROTOR_COUNT positions to advance.
+     */
+    void advance(int[] positions) {
+        positions[Engine.RIGHT] = inc(positions[Engine.RIGHT]);
+
+        if (notches[positions[Engine.MIDDLE]]) {
+            positions[Engine.MIDDLE] = inc(positions[Engine.MIDDLE]);
+            positions[Engine.LEFT] = inc(positions[Engine.LEFT]);
+        }
+
+        if (turnovers[positions[Engine.RIGHT]])
+            positions[Engine.MIDDLE] = inc(positions[Engine.MIDDLE]);
+    }
+
+    private int forward(int id, int position, int index) {
+        return rightToLeft[id * SIZE + position * 26 + index];
+    }
+
+    private int backward(int id, int position, int index) {
+        return leftToRight[id * SIZE + position * 26 + index];
+    }
+
+    /**
+     * Translate an index through every active Mapper at the given positions
+     * without advancing them.
+     * @param positions array of ROTOR_COUNT positions.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    int translate(int[] positions, int index) {
+        final int r = positions[Engine.RIGHT];
+        final int m = positions[Engine.MIDDLE];
+        final int l = positions[Engine.LEFT];
+
+        index = plugboard[index];
+
+        index = forward(Engine.RIGHT, r, index);
+        index = forward(Engine.MIDDLE, m, index);
+        index = forward(Engine.LEFT, l, index);
+
+        if (fourthWheel) {
+            final int s = positions[Engine.SLOW];
+            index = forward(Engine.SLOW, s, index);
+            index = reflector[index];
+            index = backward(Engine.SLOW, s, index);
+        } else {
+            index = reflector[index];
+        }
+
+        index = backward(Engine.LEFT, l, index);
+        index = backward(Engine.MIDDLE, m, index);
+        index = backward(Engine.RIGHT, r, index);
+
+        return plugboard[index];
+    }
+
+}
@@ -0,0 +1,191 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MachineStats is the JMX MBean that counts the work done by every Engine in
+ * the process: letters translated, rotor stepping events, lockdowns and
+ * settings file access. Counters are LongAdders so Engines on many threads
+ * can add to them without contention. Engines accumulate their counts
+ * locally and add them once per translation call, not once per letter.
+ */
+package phillockett65.Enigma;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class MachineStats implements MachineStatsMBean {
+
+    public static final String OBJECT_NAME = "phillockett65.Enigma:type=MachineStats";
+
+    private static final double WINDOW = TimeUnit.SECONDS.toNanos(60);
+    private static final long MIN_SAMPLE = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder letters = new LongAdder();
+    private final LongAdder doubleSteps = new LongAdder();
+    private final LongAdder leftSteps = new LongAdder();
+    private final LongAdder lockdowns = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    // Moving rate, guarded by this.
+    private long sampleTime = System.nanoTime();
+    private long sampleLetters = 0;
+    private double rate = 0;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    private static final MachineStats instance = register(new MachineStats());
+
+    private MachineStats() {}
+
+    /**
+     * Register the MBean with the platform MBeanServer. Failure to register
+     * is reported but does not stop the counters from working.
+     * @param stats to register.
+     * @return stats.
+     */
+    private static MachineStats register(MachineStats stats) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.out.println(e.getMessage());
+        }
+
+        return stats;
+    }
+
+    /**
+     * @return the process wide MachineStats.
+     */
+    public static MachineStats getInstance() { return instance; }
+
+
+    /************************************************************************
+     * Counting support code.
+     */
+
+    /**
+     * Add the counts accumulated by an Engine.
+     * @param count of letters translated.
+     * @param doubles count of middle rotor double steps.
+     * @param lefts count of left rotor steps.
+     */
+    public void addTranslation(long count, long doubles, long lefts) {
+        letters.add(count);
+        if (doubles != 0)
+            doubleSteps.add(doubles);
+        if (lefts != 0)
+            leftSteps.add(lefts);
+    }
+
+    public void addLockdown() { lockdowns.increment(); }
+
+    /**
+     * @param nanos taken to read the settings file.
+     */
+    public void addSettingsRead(long nanos) {
+        reads.increment();
+        readNanos.add(nanos);
+    }
+
+    /**
+     * @param nanos taken to write the settings file.
+     */
+    public void addSettingsWrite(long nanos) {
+        writes.increment();
+        writeNanos.add(nanos);
+    }
+
+
+    /************************************************************************
+     * MachineStatsMBean support code.
+     */
+
+    @Override
+    public long getLettersTranslated() { return letters.sum(); }
+
+    @Override
+    public long getMiddleDoubleSteps() { return doubleSteps.sum(); }
+
+    @Override
+    public long getLeftSteps() { return leftSteps.sum(); }
+
+    @Override
+    public long getLockdowns() { return lockdowns.sum(); }
+
+    @Override
+    public long getSettingsReads() { return reads.sum(); }
+
+    @Override
+    public long getSettingsReadMillis() { return TimeUnit.NANOSECONDS.toMillis(readNanos.sum()); }
+
+    @Override
+    public long getSettingsWrites() { return writes.sum(); }
+
+    @Override
+    public long getSettingsWriteMillis() { return TimeUnit.NANOSECONDS.toMillis(writeNanos.sum()); }
+
+    /**
+     * Update the moving rate with the letters translated since the last 
+     * sample, weighting the new sample by the time it covers. Samples 
+     * closer together than a second are not taken.
+     */
+    @Override
+    public synchronized double getLettersPerSecond() {
+        final long now = System.nanoTime();
+        final long elapsed = now - sampleTime;
+        if (elapsed >= MIN_SAMPLE) {
+            final long count = letters.sum();
+            final double current = (count - sampleLetters) * 1e9 / elapsed;
+            rate += (1 - Math.exp(-elapsed / WINDOW)) * (current - rate);
+
+            sampleTime = now;
+            sampleLetters = count;
+        }
+
+        return rate;
+    }
+
+    @Override
+    public synchronized void reset() {
+        letters.reset();
+        doubleSteps.reset();
+        leftSteps.reset();
+        lockdowns.reset();
+        reads.reset();
+        readNanos.reset();
+        writes.reset();
+        writeNanos.reset();
+
+        sampleTime = System.nanoTime();
+        sampleLetters = 0;
+        rate = 0;
+    }
+
+}
@@ -0,0 +1,67 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MachineStatsMBean is the JMX management interface of MachineStats, which
+ * is registered as "phillockett65.Enigma:type=MachineStats" on the platform
+ * MBeanServer.
+ */
+package phillockett65.Enigma;
+
+public interface MachineStatsMBean {
+
+    /**
+     * @return the number of letters translated.
+     */
+    public long getLettersTranslated();
+
+    /**
+     * @return the number of times the middle rotor stepped on two 
+     * successive key presses.
+     */
+    public long getMiddleDoubleSteps();
+
+    /**
+     * @return the number of steps of the left rotor.
+     */
+    public long getLeftSteps();
+
+    /**
+     * @return the number of times the settings were locked down.
+     */
+    public long getLockdowns();
+
+    public long getSettingsReads();
+    public long getSettingsReadMillis();
+    public long getSettingsWrites();
+    public long getSettingsWriteMillis();
+
+    /**
+     * @return the letters translated per second, as an exponentially 
+     * weighted moving average over about a minute.
+     */
+    public double getLettersPerSecond();
+
+    /**
+     * Zero all the counters.
+     */
+    public void reset();
+
+}
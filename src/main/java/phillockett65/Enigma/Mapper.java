@@ -165,7 +165,7 @@ public class Mapper {
      * @param index to translate.
      * @return the translated index.
      */
-    private int swap(int direction, int index) {
+    public int swap(int direction, int index) {
         if (direction == RIGHT_TO_LEFT) 
             return rightToLeft(index);
 
@@ -173,21 +173,22 @@ public class Mapper {
     }
 
     /**
-     * Translates (swaps) an index (numerical equivalent of the letter) to 
-     * another using the map.
-     * @param direction of mapping.
+     * Translates (swaps) an index in the RIGHT_TO_LEFT direction. The same as 
+     * swap(RIGHT_TO_LEFT, index) without testing the direction, for the fixed 
+     * order pipelines used by bulk translation.
      * @param index to translate.
-     * @param show the translation step on the command line.
      * @return the translated index.
      */
-    public int swap(int direction, int index, boolean show) {
-        final int output = swap(direction, index);
+    public int swapRightToLeft(int index) { return rightToLeft(index); }
 
-        if (show)
-            System.out.print(id + "(" + indexToLetter(index) + "->" + indexToLetter(output) + ")  ");
-
-        return output;
-    }
+    /**
+     * Translates (swaps) an index in the LEFT_TO_RIGHT direction. The same as 
+     * swap(LEFT_TO_RIGHT, index) without testing the direction, for the fixed 
+     * order pipelines used by bulk translation.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    public int swapLeftToRight(int index) { return leftToRight(index); }
 
 
     /************************************************************************
@@ -267,6 +268,26 @@ public class Mapper {
         return output;
     }
 
+    /**
+     * @brief Convert the letters of a string to indices, ignoring 
+     * anything else.
+     * 
+     * @param text to convert.
+     * @return indices of the letters.
+     */
+    public static int[] lettersToIndices(String text)
+    {
+        int[] output = new int[text.length()];
+        int count = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            final char c = text.charAt(i);
+            if (((c >= 'A') && (c <= 'Z')) || ((c >= 'a') && (c <= 'z')))
+                output[count++] = charToIndex(c);
+        }
+
+        return Arrays.copyOf(output, count);
+    }
+
     /**
      * @brief Create a plugboard map from pairs captured as a string
      * (e.g. pairString: "SZ GT DV KU FO MY EW JN IX LQ").
@@ -25,7 +25,6 @@
 package phillockett65.Enigma;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -33,7 +32,7 @@ import javafx.stage.Stage;
 
 public class Model {
 
-    private final static String DATAFILE = "Settings.dat";
+    final static String DATAFILE = "Settings.dat";
 
     public final static int FULL_COUNT = 13;
     public final static int PLUG_COUNT = 10;
@@ -79,7 +78,6 @@ public class Model {
      */
     public Model() {
         initRotorWiring();
-        initDefaultSettings();
 
         initializeReflector();
         initializeRotorSetup();
@@ -136,8 +134,10 @@ public class Model {
     }
 
     public void dailySettings(int date) {
+        DailySettingsEvent event = new DailySettingsEvent();
+        event.begin();
 
-        SettingsData settings = keyList649[date];
+        SettingsData settings = KeyList.getSettings(date);
 
         ArrayList<String> list = Mapper.splitWords(settings.getReflector());
         initPairText(list);
@@ -152,6 +152,13 @@ public class Model {
         list = Mapper.splitWords(settings.getPlugboard());
         initPlugText(list);
         buildNewPlugboard();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.day = date;
+            event.wheels = getWheelChoice(LEFT) + " " + getWheelChoice(MIDDLE) + " " + getWheelChoice(RIGHT);
+            event.commit();
+        }
     }
 
 
@@ -159,138 +166,17 @@ public class Model {
     /************************************************************************
      * Support code for Rotor definitions.
      */
-    private HashMap<String, RotorData> rotors = new HashMap<>();
-    private HashMap<String, RotorData> reflectors = new HashMap<>();
-
-    private static final RotorData[] rotorData = {
-
-        new RotorData("IC",     "DMTWSILRUYQNKFEJCAZBPGXOHV",	"1924",	"Commercial Enigma A, B", "R"),
-        new RotorData("IIC",    "HQZGPJTMOBLNCIFDYAWVEUSRKX",	"1924",	"Commercial Enigma A, B", "F"),
-        new RotorData("IIIC",   "UQNTLSZFMREHDPXKIBVYGJCWOA",	"1924",	"Commercial Enigma A, B", "W"),
-
-        new RotorData("I-R",    "JGDQOXUSCAMIFRVTPNEWKBLZYH",	"7 February 1941",	"German Railway (Rocket)", "R"),
-        new RotorData("II-R",   "NTZPSFBOKMWRCJDIVLAEYUXHGQ",	"7 February 1941",	"German Railway (Rocket)", "F"),
-        new RotorData("III-R",  "JVIUBHTCDYAKEQZPOSGXNRMWFL",	"7 February 1941",	"German Railway (Rocket)", "W"),
-        new RotorData("UKW-R",  "QYHOGNECVPUZTFDJAXWMKISRBL",	"7 February 1941",	"German Railway (Rocket)", ""),
-        new RotorData("ETW-R",  "QWERTZUIOASDFGHJKPYXCVBNML",	"7 February 1941",	"German Railway (Rocket)", ""),
-
-        new RotorData("I-K",    "PEZUOHXSCVFMTBGLRINQJWAYDK",	"February 1939",	"Swiss K", "R"),
-        new RotorData("II-K",   "ZOUESYDKFWPCIQXHMVBLGNJRAT",	"February 1939",	"Swiss K", "F"),
-        new RotorData("III-K",  "EHRVXGAOBQUSIMZFLYNWKTPDJC",	"February 1939",	"Swiss K", "W"),
-        new RotorData("UKW-K",  "IMETCGFRAYSQBZXWLHKDVUPOJN",	"February 1939",	"Swiss K", ""),
-        new RotorData("ETW-K",  "QWERTZUIOASDFGHJKPYXCVBNML",	"February 1939",	"Swiss K", ""),
-
-        new RotorData("I",      "EKMFLGDQVZNTOWYHXUSPAIBRCJ",	"1930",	"Enigma I", "R"),
-        new RotorData("II",     "AJDKSIRUXBLHWTMCQGZNPYFVOE",	"1930",	"Enigma I", "F"),
-        new RotorData("III",    "BDFHJLCPRTXVZNYEIWGAKMUSQO",	"1930",	"Enigma I", "W"),
-        new RotorData("IV",     "ESOVPZJAYQUIRHXLNFTGKDCMWB",	"December 1938",	"M3 Army", "K"),
-        new RotorData("V",      "VZBRGITYUPSDNHLXAWMJQOFECK",	"December 1938",	"M3 Army", "A"),
-        new RotorData("VI",     "JPGVOUMFYQBENHZRDKASXLICTW",	"1939",	"M3 & M4 Naval (FEB 1942)", "AN"),
-        new RotorData("VII",    "NZJHGRCXMYSWBOUFAIVLPEKQDT",	"1939",	"M3 & M4 Naval (FEB 1942)", "AN"),
-        new RotorData("VIII",   "FKQHTLXOCBJSPDZRAMEWNIUYGV",	"1939",	"M3 & M4 Naval (FEB 1942)", "AN"),
-
-        new RotorData("Beta",               "LEYJVCNIXWPBQMDRTAKZGFUHOS",	"Spring 1941",	"M4 R2", ""),
-        new RotorData("Gamma",              "FSOKANUERHMBTIYCWLQPZXVGJD",	"Spring 1942",	"M4 R2", ""),
-        new RotorData("Reflector A",        "EJMZALYXVBWFCRQUONTSPIKHGD",	"",	"", ""),
-        new RotorData("Reflector B",        "YRUHQSLDPXNGOKMIEBFZCWVJAT",	"",	"", ""),
-        new RotorData("Reflector C",        "FVPJIAOYEDRZXWGCTKUQSBNMHL",	"",	"", ""),
-        new RotorData("Reflector B Thin",   "ENKQAUYWJICOPBLMDXZVFTHRGS",	"1940",	"M4 R1 (M3 + Thin)", ""),
-        new RotorData("Reflector C Thin",   "RDOBJNTKVEHMLFCWZAXGYIPSUQ",	"1940",	"M4 R1 (M3 + Thin)", ""),
-        new RotorData("ETW",                "ABCDEFGHIJKLMNOPQRSTUVWXYZ",	"",	"Enigma I", ""),
-
-    };
 
     /**
-     * Construct all the Rotor collections.
-     * 
-     * Note: for the commercial, rocket and swissK Rotors, the turnover points 
-     * are guesses and may be incorrect.
+     * Construct the lists of Rotors and Reflectors that can be selected.
      */
     private void initRotorWiring() {
-
-        // Build list of rotors and list of reflectors that can be selected.
-        for (RotorData rotor : rotorData) {
-            String id = rotor.getId();
-
-            if (rotor.isReflector()) {
-                reflectors.put(id, rotor);
-                reflectorList.add(id);
-            } else {
-                rotors.put(id, rotor);
-                wheelList.add(id);
-            }
-        }
-
+        reflectorList.setAll(Catalogue.getReflectorList());
+        wheelList.setAll(Catalogue.getWheelList());
     }
 
 
 
-    /************************************************************************
-     * Support code for the monthly key list data number 649.
-     *   https://en.wikipedia.org/wiki/Enigma_machine#Details
-     */
-
-    private HashMap<String, String> reflectors649 = new HashMap<>();
-    private SettingsData[] keyList649 = new SettingsData[32];
-
-    private void addToReflectors649(String name, String pairString) {
-        reflectors649.put(name, pairString);
-    }
-    private void initRef649Reflector() {
-        addToReflectors649("Ref649-1",  "IL AP EU HO QT WZ KV GM BF NR DX CS");
-        addToReflectors649("Ref649-9",  "AI BT MV HU FW EL DG KN RZ OQ CP SX");
-        addToReflectors649("Ref649-17", "IU AS DV GL FT OX EZ CH MR KN BQ PW");
-        addToReflectors649("Ref649-25", "KM AX FZ GO DI CN BR PV LT EQ HS UW");
-     }
- 
-    private void addToKeyList649(int day, String wheels, int r1, int r2, int r3, 
-        String ref, String plugs, String indicator) {
-
-        String reflector = reflectors649.get(ref);
-        keyList649[day] = new SettingsData(wheels, r1, r2, r3, reflector, plugs, indicator);
-    }
-    private void initKeyList649() {
-        addToKeyList649(31, "I V III",    14, 9, 24,  "Ref649-25",    "SZ GT DV KU FO MY EW JN IX LQ", "wny dgy ekb rzg");
-        addToKeyList649(30, "IV III II",  5, 26, 2,   "Ref649-25",    "IS EV MX RW DT UZ JQ AO CH NY", "ktl acw zci wzo");
-        addToKeyList649(29, "III II I",   2, 24, 3,   "Ref649-25",    "DJ AT CV IO ER QS LW PZ FN BH", "ioc acn ovw wvc");
-        addToKeyList649(28, "II III V",   6, 8, 16,   "Ref649-25",    "CR FV AI DK OT MQ EU BX LP GJ", "lrb cld ude rzh");
-        addToKeyList649(27, "III I IV",   11, 3, 7,   "Ref649-25",    "DY IN BV GR AM LO FP HT EX UW", "woj fbh vct uis");
-        addToKeyList649(26, "I IV V",     17, 22, 19, "Ref649-25",    "VZ AL RT KO CG EI BJ DU FS HP", "xle gbo uev rxm");
-        addToKeyList649(25, "IV III I",   8, 25, 12,  "Ref649-25",    "OR PV AD IT FK HJ LZ NS EQ CW", "ouc uhq uew uit");
-        addToKeyList649(24, "V I IV",     5, 18, 14,  "Ref649-17",    "TY AS OW KV JM DR HX GL CZ NU", "kpl rwl vci tlq");
-        addToKeyList649(23, "IV II I",    24, 12, 4,  "Ref649-17",    "QV FR AK EO DH CJ MZ SX GN LT", "ebn rwm udf tlo");
-        addToKeyList649(22, "II IV V",    1, 9, 21,   "Ref649-17",    "FJ ES IM RX LV AY OU BG WZ CN", "jrc acx mwe wve");
-        addToKeyList649(21, "I V II",     13, 5, 19,  "Ref649-17",    "RU HL FY OS GZ DM AW CE TV NX", "jpw del mwf wvf");
-        addToKeyList649(20, "III IV V",   24, 1, 10,  "Ref649-17",    "DF MO QZ AU RY SV JL GX BE TW", "jqd cef nvo ysh");
-        addToKeyList649(19, "V III I",    17, 25, 20, "Ref649-17",    "OX PR FH WY DL CM AE TZ JS GI", "idf fpx jwg tlg");
-        addToKeyList649(18, "IV II V",    15, 23, 26, "Ref649-17",    "EJ OY IV AQ KW FX MT PS LU BD", "lsa zbw vcj rxn");
-        addToKeyList649(17, "I IV II",    21, 10, 6,  "Ref649-17",    "IR KZ LS EM OV GY QX AF JP BU", "mae hzi sog ysi");
-        addToKeyList649(16, "V II III",   8, 16, 13,  "Ref649-9",     "HM JO DI NR BY XZ GS PU FQ CT", "tdp dhb fkb uiv");
-        addToKeyList649(15, "II IV I",    1, 3, 7,    "Ref649-9",     "DS HY MR GW LX AJ BQ CO IP NT", "ldw hzj soh wvg");
-        addToKeyList649(14, "IV I V",     15, 11, 5,  "Ref649-9",     "GM JR KS IY HZ PL AX BT CQ NV", "imz noa tjv xtk");
-        addToKeyList649(13, "I III II",   13, 20, 3,  "Ref649-9",     "LY AG KM BR IQ JU HV SW ET CX", "zgr dgz gjo ryq");
-        addToKeyList649(12, "V II IV",    18, 10, 7,  "Ref649-9",     "MU BP CY RZ KX AN JT DG IL FW", "zdy rkf tjw xtl");
-        addToKeyList649(11, "II IV III",  2, 26, 15,  "Ref649-9",     "KN UY HR PW FM BO EZ QT DX JV", "zea rjy soi wvh");
-        addToKeyList649(10, "III V IV",   23, 21, 1,  "Ref649-9",     "LR IK MS QU HW PT GO VX FZ EN", "lrc zbx vbm rxo");
-        addToKeyList649( 9, "V I III",    16, 4, 8,   "Ref649-9",     "QY BS LN KT AP IU DW HO RV JZ", "edj eyr vby tlh");
-        addToKeyList649( 8, "IV II V",    13, 19, 25, "Ref649-1",     "FI NQ SY CU BZ AH EL TX DO KP", "yiz dha ekc tli");
-        addToKeyList649( 7, "I IV II",    9, 3, 22,   "Ref649-1",     "UX IZ HN BK GQ CP FT JY MW AR", "lan dgb zsj wbi");
-        addToKeyList649( 6, "III I V",    11, 18, 14, "Ref649-1",     "DQ GU BW NP HK AZ CI FO JX VY", "lao cft zsk wbj");
-        addToKeyList649( 5, "V II IV",    23, 2, 25,  "Ref649-1",     "MV CL GK OQ BI FU HS PX NW EY", "lju cdr iye waj");
-        addToKeyList649( 4, "II IV I",    4, 21, 9,   "Ref649-1",     "AC BL OZ EK QW GP SU DH JM TX", "lsb zby vcy ujb");
-        addToKeyList649( 3, "V I II",     19, 11, 6,  "Ref649-1",     "KR MP CN BF EH DZ IW AV GJ LO", "lap owd iwu wak");
-        addToKeyList649( 2, "IV V I",     16, 14, 2,  "Ref649-1",     "BN HU EG PY KQ CF OS JW AI VZ", "aqd bdy iyf xtd");
-        addToKeyList649( 1, "II I III",   23, 12, 10, "Ref649-1",     "DP BM NZ CK GV HQ AF UY SW JO", "kgl cdf giq wuv");
-    }
-
-    /**
-     * Construct all the monthly key list data.
-     */
-    private void initDefaultSettings() {
-        initRef649Reflector();
-        initKeyList649();
-    }
-
      /************************************************************************
      * Support code for "Reflector Set-Up" panel.
      */
@@ -354,7 +240,7 @@ public class Model {
         if (reconfigurable) {
             reflectorMap = pairs.getMap();
         } else {
-            RotorData rotor = getRotorData(reflectors, reflectorChoice);
+            RotorData rotor = Catalogue.getReflector(reflectorChoice);
             reflectorMap = rotor.getMap();
         }
 
@@ -378,7 +264,6 @@ public class Model {
     private ObservableList<String> wheelList = FXCollections.observableArrayList();
 
     private ArrayList<RotorControl> rotorControls = new ArrayList<RotorControl>(ROTOR_COUNT);
-    private ArrayList<Rotor> activeRotors = new ArrayList<Rotor>(ROTOR_COUNT);
 
     private boolean fourthWheel = false;
     private boolean useNumbers = false;
@@ -427,17 +312,22 @@ public class Model {
     public String getWheelChoice(int index) { return getState(index).getWheelChoice(); }
     public int getRingIndex(int index) { return getState(index).getRingIndex(); }
     public int getRotorIndex(int index) { return getState(index).getRotorIndex(); }
-    private void incrementRotorOffset(int index, int step) { getState(index).increment(step); }
 
     private Rotor buildNewRotor(int id) {
-        return new Rotor(getRotorData(rotors, getWheelChoice(id)), getRingIndex(id));
+        return new Rotor(Catalogue.getRotor(getWheelChoice(id)), getRingIndex(id));
     }
 
-    private Rotor getActiveRotor(int id) { return activeRotors.get(id); }
-
-    private void addActiveRotorEntry(int id) { activeRotors.add(buildNewRotor(id)); }
-    private void updateActiveRotorEntry(int id) { activeRotors.set(id, buildNewRotor(id)); }
-    private void setActiveRotorOffset(int id) { getActiveRotor(id).setOffset(getRotorIndex(id)); }
+    /**
+     * Called when a rotor offset spinner changes. While translating, a user 
+     * change to the spinner repositions the Engine, but changes made by 
+     * syncRotorOffsets() are ignored.
+     * @param id of Rotor.
+     * @param index of the new rotor offset.
+     */
+    private void rotorOffsetChanged(int id, int index) {
+        if ((encipher) && (!syncingOffsets))
+            engine.setPosition(id, index);
+    }
 
     /**
      * Initialize "Rotor Set-Up".
@@ -449,6 +339,9 @@ public class Model {
             rotorControl.init(i, wheelList);
             rotorControl.setSpacing(8);
 
+            final int id = i;
+            rotorControl.setOffsetListener(index -> rotorOffsetChanged(id, index));
+
             rotorControls.add(rotorControl);
         }
     }
@@ -516,8 +409,47 @@ public class Model {
     private boolean show = false;
     private ObservableList<Integer> settingsList = FXCollections.observableArrayList();
 
+    private Engine engine;
+    private MachineSpec spec;
+    private boolean syncingOffsets = false;
+    private boolean compiled = false;
+    private boolean specialized = false;
+
     public boolean isShow() { return show; }
-    public void setShow(boolean state) { show = state; }
+    public void setShow(boolean state) {
+        show = state;
+        if (engine != null)
+            engine.setShow(show);
+    }
+
+    /**
+     * @return the Engine built by the last lockdown, null if there has not 
+     * been one.
+     */
+    public Engine getEngine() { return engine; }
+
+    /**
+     * @return the immutable MachineSpec built by the last lockdown, which 
+     * may be shared with other threads, null if there has not been one.
+     */
+    public MachineSpec getMachineSpec() { return spec; }
+
+    /**
+     * Select compiled mode, which takes effect at the next lockdown. The 
+     * whole machine is precompiled into a CompiledTable for the settings.
+     * @param state true to use compiled mode.
+     */
+    public void setCompiled(boolean state) { compiled = state; }
+    public boolean isCompiled() { return compiled; }
+
+    /**
+     * Select a specialized pipeline, which takes effect at the next 
+     * lockdown. A class is generated with the tables for the settings and 
+     * the translation path unrolled.
+     * @param state true to use a specialized pipeline.
+     */
+    public void setSpecialized(boolean state) { specialized = state; }
+    public boolean isSpecialized() { return specialized; }
 
 
     /**
@@ -534,106 +466,104 @@ public class Model {
     public ObservableList<Integer> getSettingsList()   { return settingsList; }
 
     /**
-     * Find a RotorData with the given id in the given list,
-     * @param list of Rotors to search.
-     * @param target id of Rotor.
-     * @return RotorData with matching id if found, entry 0 otherwise.
+     * Copy the rotor offsets from the spinners to the Engine.
      */
-    private RotorData getRotorData(HashMap<String, RotorData> list, String target) {
-        return list.get(target);
-    }
-
-
-    /**
-     * Advances the spinner of the right rotor then checks the other rotors. 
-     * The notch point of the middle rotor is used to check for a step of the 
-     * left rotor and a double step of the middle rotor. The turnover point of 
-     * the right rotor is used to check for a step of the middle rotor
-     */
-    private void advanceRotors() {
-        // Normal step of the spinner of the right rotor.
-        incrementRotorOffset(RIGHT, 1);
-
-        Rotor rotor = getActiveRotor(MIDDLE);
-        if (rotor.isNotchPoint(getRotorIndex(MIDDLE))) {
-            // Double step of the spinner of the middle rotor, normal step of 
-            // the spinner of the left rotor.
-            incrementRotorOffset(MIDDLE, 1);
-            incrementRotorOffset(LEFT, 1);
-        }
-
-        rotor = getActiveRotor(RIGHT);
-        if (rotor.isTurnoverPoint(getRotorIndex(RIGHT))) {
-            // The right rotor takes the spinner of the middle rotor one step 
-            // further.
-            incrementRotorOffset(MIDDLE, 1);
-        }
+    private void loadRotorOffsets() {
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            engine.setPosition(i, getRotorIndex(i));
     }
 
     /**
-     * Update the Rotor Offsets.
+     * Refresh the rotor offset spinners from the Engine.
      */
-    private void updateRotorOffsets() {
-        for (int i = 0; i < ROTOR_COUNT; ++i) {
-            setActiveRotorOffset(i);
-        }
+    private void syncRotorOffsets() {
+        syncingOffsets = true;
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            getState(i).setRotorIndex(engine.getPosition(i));
+        syncingOffsets = false;
     }
 
 
-    private int mapperTranslate(int index, Mapper mapper, int dir) {
-        return mapper.swap(dir, index, isShow());
-    }
-    private int mapperTranslate(int index, int id, int dir) {
-        return getActiveRotor(id).swap(dir, index, isShow());
-    }
-
     /**
-     * Translates an index (numerical equivalent of the letter) to another for 
-     * every active Mapper.
+     * Advance the Rotors and translate an index (numerical equivalent of the 
+     * letter) through the pipeline, then refresh the rotor offset spinners.
      * @param index to translate.
      * @return the translated index.
      */
-    private int translateIndex(int index) {
-        if (isShow())
-            System.out.print("Key: " + Mapper.indexToLetter(index) + "  ");
-
-        index = mapperTranslate(index, plugboard, Mapper.RIGHT_TO_LEFT);
-
-        index = mapperTranslate(index, RIGHT, Mapper.RIGHT_TO_LEFT);
-        index = mapperTranslate(index, MIDDLE, Mapper.RIGHT_TO_LEFT);
-        index = mapperTranslate(index, LEFT, Mapper.RIGHT_TO_LEFT);
-
-        if (fourthWheel)
-            index = mapperTranslate(index, SLOW, Mapper.RIGHT_TO_LEFT);
+    public int translate(int index) {
+        final int output = engine.translate(index);
+        syncRotorOffsets();
 
-        index = mapperTranslate(index, reflector, Mapper.RIGHT_TO_LEFT);
+        return output;
+    }
 
-        if (fourthWheel)
-            index = mapperTranslate(index, SLOW, Mapper.LEFT_TO_RIGHT);
+    /**
+     * Move the Rotors to the positions they would reach after the given 
+     * number of key presses then refresh the rotor offset spinners.
+     * @param keys number of key presses, which must not be negative.
+     * @throws IllegalArgumentException if keys is negative.
+     */
+    public void jump(long keys) {
+        engine.jump(keys);
+        syncRotorOffsets();
+    }
 
-        index = mapperTranslate(index, LEFT, Mapper.LEFT_TO_RIGHT);
-        index = mapperTranslate(index, MIDDLE, Mapper.LEFT_TO_RIGHT);
-        index = mapperTranslate(index, RIGHT, Mapper.LEFT_TO_RIGHT);
+    /**
+     * Translate a sequence of characters into a caller supplied buffer then 
+     * refresh the rotor offset spinners once. Letters are translated (lower 
+     * case to upper case) and anything else is passed through unchanged.
+     * @param input characters to translate.
+     * @param output buffer to receive the translation.
+     * @param offset into output of the first translated character.
+     * @return the number of characters written.
+     */
+    public int translate(CharSequence input, char[] output, int offset) {
+        final int count = engine.translate(input, output, offset);
+        syncRotorOffsets();
 
-        index = mapperTranslate(index, plugboard, Mapper.LEFT_TO_RIGHT);
+        return count;
+    }
 
-        if (isShow())
-            System.out.println("Lamp: " + Mapper.indexToLetter(index));
+    /**
+     * Translate a message across all cores using a TranslationSpliterator 
+     * then refresh the rotor offset spinners. Letters are translated (lower 
+     * case to upper case) and anything else is passed through unchanged.
+     * @param input message to translate.
+     * @return the translated message.
+     */
+    public String translateParallel(CharSequence input) {
+        final String output = TranslationSpliterator.translateParallel(engine, input);
+        syncRotorOffsets();
 
-        return index;
+        return output;
     }
 
+    /**
+     * Translate a range of characters into a caller supplied buffer then 
+     * refresh the rotor offset spinners once.
+     * @param input characters to translate.
+     * @param inOffset into input of the first character to translate.
+     * @param output buffer to receive the translation.
+     * @param outOffset into output of the first translated character.
+     * @param length number of characters to translate.
+     */
+    public void translate(char[] input, int inOffset, char[] output, int outOffset, int length) {
+        engine.translate(input, inOffset, output, outOffset, length);
+        syncRotorOffsets();
+    }
 
     /**
-     * Advance the Rotors and translate an index (numerical equivalent of the 
-     * letter) through the pipeline.
-     * @param index to translate.
-     * @return the translated index.
+     * Translate a range of ASCII bytes into a caller supplied buffer then 
+     * refresh the rotor offset spinners once.
+     * @param input bytes to translate.
+     * @param inOffset into input of the first byte to translate.
+     * @param output buffer to receive the translation.
+     * @param outOffset into output of the first translated byte.
+     * @param length number of bytes to translate.
      */
-    public int translate(int index) {
-        advanceRotors();
-        updateRotorOffsets();
-        return translateIndex(index);
+    public void translate(byte[] input, int inOffset, byte[] output, int outOffset, int length) {
+        engine.translate(input, inOffset, output, outOffset, length);
+        syncRotorOffsets();
     }
 
 
@@ -643,11 +573,44 @@ public class Model {
      * ring settings and building the pipeline.
      */
     private void lockdownSettings() {
+        LockdownEvent event = new LockdownEvent();
+        event.begin();
+
         buildNewPlugboard();
         buildNewReflector();
 
+        Rotor[] activeRotors = new Rotor[ROTOR_COUNT];
         for (int i = 0; i < ROTOR_COUNT; ++i) {
-            updateActiveRotorEntry(i);
+            activeRotors[i] = buildNewRotor(i);
+        }
+
+        MachineStats.getInstance().addLockdown();
+
+        if (engine != null)
+            engine.stopTrace();
+
+        engine = new Engine(plugboard, activeRotors, reflector, fourthWheel);
+        engine.setShow(show);
+        loadRotorOffsets();
+
+        int[] positions = new int[ROTOR_COUNT];
+        for (int i = 0; i < ROTOR_COUNT; ++i)
+            positions[i] = engine.getPosition(i);
+        spec = new MachineSpec(plugboard.getMap(), reflector.getMap(), activeRotors, positions, fourthWheel);
+
+        if (specialized)
+            engine.setPipeline(PipelineCompiler.compile(spec));
+
+        if (compiled)
+            engine.setCompiled(CompiledTable.get(engine));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.configurationId = engine.getConfigurationId();
+            event.fourthWheel = fourthWheel;
+            event.compiled = compiled;
+            event.specialized = specialized;
+            event.commit();
         }
     }
 
@@ -664,26 +627,14 @@ public class Model {
     }
 
 
-    private void buildTheMappers() {
-        for (int i = 0; i < ROTOR_COUNT; ++i) {
-            addActiveRotorEntry(i);
-            setActiveRotorOffset(i);
-        }
-    }
-
     private void initSettingsList() {
-        final int max = keyList649.length;
-        for (int i = 0; i < max; ++i) {
-            if (keyList649[i] != null)
-                settingsList.add(i);
-        }
+        settingsList.setAll(KeyList.getDays());
     }
 
     /**
      * Initialize "Translation" panel.
      */
     private void initializeEncipher() {
-        buildTheMappers();
         initSettingsList();
     }
 
@@ -694,14 +645,14 @@ public class Model {
      */
 
     public void dumpRotorWiring() {
-        for (RotorData rotor : rotorData)
+        for (RotorData rotor : Catalogue.getRotorData())
             System.out.println(rotor.toString());
         System.out.println();
     }
 
     public int test1(char key) {
-        updateRotorOffsets();
-        return translateIndex(Rotor.charToIndex(key));
+        loadRotorOffsets();
+        return engine.translateIndex(Rotor.charToIndex(key));
         // return translate(Rotor.charToIndex(key));
     }
 
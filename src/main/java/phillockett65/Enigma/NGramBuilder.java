@@ -0,0 +1,244 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NGramBuilder is the non-GUI tool that counts the sequences of 1 to 4
+ * letters in plain text corpora and writes their log10 probabilities in the
+ * file layout read by NGramTable.load(). Each corpus is reduced to its letters
+ * and counted in chunks on a parallel stream.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class NGramBuilder {
+
+    private static final int CHUNK = 1024 * 1024;
+
+    private final int maxOrder;
+    private final long[][] counts;  // Indexed by order, then sequence.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param maxOrder length of the longest sequences counted (1 to 4).
+     */
+    public NGramBuilder(int maxOrder) {
+        if ((maxOrder < 1) || (maxOrder > NGramTable.MAX_ORDER))
+            throw new IllegalArgumentException("Invalid order: " + maxOrder);
+
+        this.maxOrder = maxOrder;
+        counts = newCounts();
+    }
+
+    private long[][] newCounts() {
+        long[][] output = new long[maxOrder + 1][];
+        for (int order = 1; order <= maxOrder; ++order)
+            output[order] = new long[NGramTable.size(order)];
+
+        return output;
+    }
+
+    private static void addCounts(long[][] total, long[][] counts) {
+        for (int order = 1; order < total.length; ++order)
+            for (int i = 0; i < total[order].length; ++i)
+                total[order][i] += counts[order][i];
+    }
+
+
+    /************************************************************************
+     * Counting support code.
+     */
+
+    /**
+     * Reduce text to the indices of its letters.
+     * @param data bytes of the text.
+     * @return the letter indices.
+     */
+    private static byte[] toLetters(byte[] data) {
+        int count = 0;
+        for (byte b : data)
+            if (((b >= 'A') && (b <= 'Z')) || ((b >= 'a') && (b <= 'z')))
+                data[count++] = (byte)Mapper.charToIndex(b);
+
+        byte[] output = new byte[count];
+        System.arraycopy(data, 0, output, 0, count);
+
+        return output;
+    }
+
+    /**
+     * Count the sequences that start in a chunk of the text.
+     * @param text letter indices.
+     * @param chunk number of the chunk.
+     * @param counts to add to.
+     */
+    private void count(byte[] text, int chunk, long[][] counts) {
+        final int first = chunk * CHUNK;
+        final int last = Math.min(first + CHUNK, text.length);
+
+        for (int p = first; p < last; ++p) {
+            int index = 0;
+            for (int order = 1; order <= maxOrder; ++order) {
+                final int end = p + order - 1;
+                if (end >= text.length)
+                    break;
+
+                index = index * 26 + text[end];
+                counts[order][index]++;
+            }
+        }
+    }
+
+    /**
+     * Count the sequences of a text, which do not run on into any other
+     * text added.
+     * @param data bytes of the text, which are overwritten.
+     */
+    public void add(byte[] data) {
+        final byte[] text = toLetters(data);
+        final int chunks = (text.length + CHUNK - 1) / CHUNK;
+
+        long[][] result = IntStream.range(0, chunks).parallel()
+            .collect(this::newCounts, (c, chunk) -> count(text, chunk, c), NGramBuilder::addCounts);
+
+        addCounts(counts, result);
+    }
+
+    /**
+     * Count the sequences of a corpus file.
+     * @param file of plain text.
+     * @throws IOException if the file can not be read.
+     */
+    public void add(Path file) throws IOException {
+        add(Files.readAllBytes(file));
+    }
+
+
+    /************************************************************************
+     * Output support code.
+     */
+
+    /**
+     * @param order length of the sequences.
+     * @return the NGramTable of the sequences counted so far.
+     */
+    public NGramTable getTable(int order) {
+        return new NGramTable(order, NGramTable.toLogProbabilities(counts[order]));
+    }
+
+    /**
+     * Write the tables of every order counted in the NGramTable file layout.
+     * @param file to create or replace.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer header = ByteBuffer.allocate(NGramTable.HEADER);
+            header.putInt(NGramTable.MAGIC).putInt(NGramTable.VERSION).putInt(maxOrder).putInt(0);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header);
+
+            for (int order = 1; order <= maxOrder; ++order) {
+                final float[] table = NGramTable.toLogProbabilities(counts[order]);
+                ByteBuffer buffer = ByteBuffer.allocate(4 * table.length);
+                buffer.asFloatBuffer().put(table);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            }
+        }
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: NGramBuilder [options] output corpus...");
+        System.err.println("Builds n-gram tables from plain text corpora.");
+        System.err.println("  -n order       longest sequence, 1 to 4 (default 4)");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        int maxOrder = NGramTable.MAX_ORDER;
+        List<String> values = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-n": maxOrder = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    values.add(arg);
+                }
+            }
+
+            if (values.size() < 2)
+                throw new IllegalArgumentException("Expected output and at least one corpus");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            NGramBuilder builder = new NGramBuilder(maxOrder);
+            for (String corpus : values.subList(1, values.size()))
+                builder.add(Paths.get(corpus));
+
+            builder.write(Paths.get(values.get(0)));
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NGramTable is a class that holds the log10 probabilities of every sequence
+ * of n letters (n = 1 to 4) of a language, indexed by the letter indices read
+ * as a base 26 number. Sequences not seen in the corpus get a floor value
+ * below the least likely sequence that was seen. Tables may be held on the
+ * heap or read directly from a memory mapped file written by NGramBuilder, in
+ * which case one read only copy is shared by every thread.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class NGramTable {
+
+    public static final int MAX_ORDER = 4;
+
+    /*
+     * File layout, big endian: MAGIC, VERSION, the highest order held and a
+     * reserved int, followed by the tables of order 1 up to the highest
+     * order as floats.
+     */
+    public static final int MAGIC = 0x4E47524D;    // "NGRM".
+    public static final int VERSION = 1;
+    public static final int HEADER = 16;
+
+    private final int order;
+    private final FloatBuffer table;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param order length of the sequences (1 to 4).
+     * @param table log10 probabilities, 26 to the power of order long.
+     * @throws IllegalArgumentException if the table does not match the order.
+     */
+    public NGramTable(int order, float[] table) {
+        this(order, FloatBuffer.wrap(table));
+    }
+
+    /**
+     * Constructor. The buffer must not be changed while the table is in use.
+     * @param order length of the sequences (1 to 4).
+     * @param table log10 probabilities, 26 to the power of order long.
+     * @throws IllegalArgumentException if the table does not match the order.
+     */
+    public NGramTable(int order, FloatBuffer table) {
+        if ((order < 1) || (order > MAX_ORDER) || (table.capacity() != size(order)))
+            throw new IllegalArgumentException("Invalid n-gram table of order " + order);
+
+        this.order = order;
+        this.table = table;
+    }
+
+    /**
+     * @param order length of the sequences.
+     * @return the number of different sequences.
+     */
+    public static int size(int order) {
+        int output = 1;
+        for (int i = 0; i < order; ++i)
+            output *= 26;
+
+        return output;
+    }
+
+    /**
+     * Convert counts to log10 probabilities.
+     * @param counts of each sequence.
+     * @return the log10 probabilities.
+     */
+    public static float[] toLogProbabilities(long[] counts) {
+        long total = 0;
+        for (long count : counts)
+            total += count;
+
+        final double floor = Math.log10(0.01 / Math.max(total, 1));
+        float[] output = new float[counts.length];
+        for (int i = 0; i < counts.length; ++i)
+            output[i] = (float)((counts[i] == 0) ? floor : Math.log10((double)counts[i] / total));
+
+        return output;
+    }
+
+    /**
+     * @param order length of the sequences.
+     * @return the byte offset of the table of the given order in a file.
+     */
+    public static long offset(int order) {
+        long output = HEADER;
+        for (int i = 1; i < order; ++i)
+            output += 4L * size(i);
+
+        return output;
+    }
+
+    /**
+     * Map a table from a file written by NGramBuilder.
+     * @param file of tables.
+     * @param order length of the sequences (1 to 4).
+     * @return the NGramTable read from the file.
+     * @throws IOException if the file can not be read or is not valid.
+     */
+    public static NGramTable load(Path file, int order) throws IOException {
+        if ((order < 1) || (order > MAX_ORDER))
+            throw new IllegalArgumentException("Invalid order: " + order);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if ((header.getInt() != MAGIC) || (header.getInt() != VERSION))
+                throw new IOException("Not an n-gram table file: " + file);
+            if (header.getInt() < order)
+                throw new IOException("No table of order " + order + " in " + file);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset(order), 4L * size(order));
+
+            return new NGramTable(order, buffer.asFloatBuffer());
+        }
+    }
+
+    /**
+     * Count the sequences in a corpus. Non-letters are ignored, so sequences
+     * run across spaces and punctuation.
+     * @param order length of the sequences (1 to 4).
+     * @param corpus sample text of the language.
+     * @return the NGramTable for the corpus.
+     */
+    public static NGramTable fromCorpus(int order, CharSequence corpus) {
+        long[] counts = new long[size(order)];
+        final int mod = size(order - 1);
+
+        int index = 0;
+        int length = 0;
+        for (int i = 0; i < corpus.length(); ++i) {
+            final char c = corpus.charAt(i);
+            if (((c < 'A') || (c > 'Z')) && ((c < 'a') || (c > 'z')))
+                continue;
+
+            index = (index % mod) * 26 + Mapper.charToIndex(c);
+            if (++length >= order)
+                counts[index]++;
+        }
+
+        return new NGramTable(order, toLogProbabilities(counts));
+    }
+
+
+    /************************************************************************
+     * Scoring support code.
+     */
+
+    public int getOrder() { return order; }
+
+    /**
+     * @param index of a sequence.
+     * @return the log10 probability of the sequence.
+     */
+    public float get(int index) { return table.get(index); }
+
+    /**
+     * Score the sequence starting at a position of a text.
+     * @param text letter indices.
+     * @param start position of the sequence.
+     * @return the log10 probability of the sequence.
+     */
+    public float get(int[] text, int start) {
+        int index = 0;
+        for (int i = 0; i < order; ++i)
+            index = index * 26 + text[start + i];
+
+        return table.get(index);
+    }
+
+    /**
+     * Score a whole text.
+     * @param text letter indices.
+     * @return the sum of the log10 probabilities of every sequence.
+     */
+    public double score(int[] text) {
+        double output = 0;
+        for (int start = 0; start + order <= text.length; ++start)
+            output += get(text, start);
+
+        return output;
+    }
+
+}
@@ -0,0 +1,298 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PackedState is a class of static support code that packs the complete
+ * machine settings into a single long, so that states can be hashed, stored
+ * in primitive sets and passed between threads and processes without
+ * allocating. The plugboard, and a reconfigurable reflector, are involutions
+ * of the 26 letters and are packed separately as their rank among all 
+ * involutions, which is below 2^50; an empty plugboard packs to 0.
+ *
+ * Settings layout, from bit 0: the 4 rotor positions (5 bits each, indexed
+ * by Engine.SLOW to Engine.RIGHT), the 4 ring settings, the 4 wheel indices
+ * in Catalogue.getWheelList(), the reflector index in 
+ * Catalogue.getReflectorList() (3 bits, 7 meaning reconfigurable) and the
+ * fourth wheel flag.
+ */
+package phillockett65.Enigma;
+
+import java.util.ArrayList;
+
+public class PackedState {
+
+    public static final int RECONFIGURABLE = 7;
+
+    private static final int POSITIONS = 0;
+    private static final int RINGS = 20;
+    private static final int WHEELS = 40;
+    private static final int REFLECTOR = 60;
+    private static final int FOURTH = 63;
+
+    private static final long FIELD = 0x1F;
+
+    private static final long[] involutions = new long[27];  // Count for n letters.
+
+    static {
+        involutions[0] = 1;
+        involutions[1] = 1;
+        for (int n = 2; n < involutions.length; ++n)
+            involutions[n] = involutions[n - 1] + (n - 1) * involutions[n - 2];
+    }
+
+
+    /************************************************************************
+     * Field support code.
+     */
+
+    private static int get(long state, int shift) { return (int)((state >>> shift) & FIELD); }
+
+    private static long set(long state, int shift, int value) {
+        return (state & ~(FIELD << shift)) | ((long)value << shift);
+    }
+
+    public static int getPosition(long state, int id) { return get(state, POSITIONS + 5 * id); }
+    public static int getRing(long state, int id) { return get(state, RINGS + 5 * id); }
+    public static int getWheelIndex(long state, int id) { return get(state, WHEELS + 5 * id); }
+    public static String getWheel(long state, int id) { return Catalogue.getWheelList().get(getWheelIndex(state, id)); }
+    public static int getReflectorIndex(long state) { return (int)((state >>> REFLECTOR) & 7); }
+    public static boolean isReconfigurable(long state) { return getReflectorIndex(state) == RECONFIGURABLE; }
+    public static boolean isFourthWheel(long state) { return (state >>> FOURTH) != 0; }
+
+    public static long withPosition(long state, int id, int index) { return set(state, POSITIONS + 5 * id, index); }
+    public static long withRing(long state, int id, int index) { return set(state, RINGS + 5 * id, index); }
+
+    /**
+     * Replace the positions with the current positions of an Engine.
+     * @param state packed settings.
+     * @param engine to read.
+     * @return the updated packed settings.
+     */
+    public static long withPositions(long state, Engine engine) {
+        for (int id = 0; id < Engine.ROTOR_COUNT; ++id)
+            state = withPosition(state, id, engine.getPosition(id));
+
+        return state;
+    }
+
+
+    /************************************************************************
+     * Involution support code.
+     */
+
+    /**
+     * Rank an involution among all involutions of 26 letters. Involutions
+     * that fix the lowest remaining letter come first, followed by those 
+     * that pair it with each other remaining letter in turn.
+     * @param map of 26 letters where map[map[i]] == i.
+     * @return the rank, 0 for the identity.
+     * @throws IllegalArgumentException if the map is not an involution.
+     */
+    public static long packInvolution(int[] map) {
+        int remaining = (1 << 26) - 1;
+        long rank = 0;
+
+        for (int n = 26; n > 0; ) {
+            final int a = Integer.numberOfTrailingZeros(remaining);
+            final int b = map[a];
+            if ((b < 0) || (b > 25) || (map[b] != a) || ((remaining & (1 << b)) == 0))
+                throw new IllegalArgumentException("Not an involution");
+
+            remaining &= ~(1 << a);
+            if (b == a) {
+                --n;
+                continue;
+            }
+
+            // Index of b among the remaining letters after a.
+            final int j = Integer.bitCount(remaining & ((1 << b) - 1));
+            rank += involutions[n - 1] + j * involutions[n - 2];
+            remaining &= ~(1 << b);
+            n -= 2;
+        }
+
+        return rank;
+    }
+
+    /**
+     * Rebuild an involution from its rank.
+     * @param rank produced by packInvolution().
+     * @param map of 26 letters to fill.
+     * @return map.
+     * @throws IllegalArgumentException if the rank is not valid.
+     */
+    public static int[] unpackInvolution(long rank, int[] map) {
+        if ((rank < 0) || (rank >= involutions[26]))
+            throw new IllegalArgumentException("Invalid involution rank: " + rank);
+
+        int remaining = (1 << 26) - 1;
+        for (int n = 26; n > 0; ) {
+            final int a = Integer.numberOfTrailingZeros(remaining);
+            remaining &= ~(1 << a);
+
+            if (rank < involutions[n - 1]) {
+                map[a] = a;
+                --n;
+                continue;
+            }
+
+            rank -= involutions[n - 1];
+            int j = (int)(rank / involutions[n - 2]);
+            rank %= involutions[n - 2];
+
+            int bits = remaining;
+            for (; j > 0; --j)
+                bits &= bits - 1;
+            final int b = Integer.numberOfTrailingZeros(bits);
+
+            map[a] = b;
+            map[b] = a;
+            remaining &= ~(1 << b);
+            n -= 2;
+        }
+
+        return map;
+    }
+
+
+    /************************************************************************
+     * Configuration support code.
+     */
+
+    /**
+     * Pack the settings, other than the plugboard and the pairs of a 
+     * reconfigurable reflector.
+     * @param config settings to pack.
+     * @return the packed settings.
+     * @throws IllegalArgumentException if a rotor or reflector is not in
+     * the Catalogue.
+     */
+    public static long pack(Configuration config) {
+        long state = 0;
+
+        for (int id = 0; id < Engine.ROTOR_COUNT; ++id) {
+            final int wheel = Catalogue.getWheelList().indexOf(config.getWheelChoice(id));
+            if (wheel == -1)
+                throw new IllegalArgumentException("Unknown rotor: " + config.getWheelChoice(id));
+
+            state = set(state, POSITIONS + 5 * id, config.getRotorIndex(id));
+            state = set(state, RINGS + 5 * id, config.getRingIndex(id));
+            state = set(state, WHEELS + 5 * id, wheel);
+        }
+
+        int reflector = RECONFIGURABLE;
+        if (!config.isReconfigurable()) {
+            reflector = Catalogue.getReflectorList().indexOf(config.getReflectorChoice());
+            if (reflector == -1)
+                throw new IllegalArgumentException("Unknown reflector: " + config.getReflectorChoice());
+        }
+        state |= (long)reflector << REFLECTOR;
+
+        if (config.isFourthWheel())
+            state |= 1L << FOURTH;
+
+        return state;
+    }
+
+    /**
+     * @param config settings to pack.
+     * @return the packed plugboard.
+     * @throws IllegalArgumentException if the plugboard is not valid.
+     */
+    public static long packPlugboard(Configuration config) { return packInvolution(config.getPlugboardMap()); }
+
+    /**
+     * @param config settings to pack.
+     * @return the packed reflector pairs, only meaningful if reconfigurable.
+     * @throws IllegalArgumentException if the reflector is not valid.
+     */
+    public static long packReflector(Configuration config) { return packInvolution(config.getReflectorMap()); }
+
+    /**
+     * Convert an involution to pairs.
+     * @param map of 26 letters.
+     * @param max number of pairs, any more are left to be implied, as by a
+     * reconfigurable reflector.
+     * @return the pairs, e.g. "AB CD".
+     */
+    private static String toPairs(int[] map, int max) {
+        ArrayList<String> pairs = new ArrayList<String>();
+        for (int i = 0; (i < 26) && (pairs.size() < max); ++i)
+            if (map[i] > i)
+                pairs.add(Mapper.indexToLetter(i) + Mapper.indexToLetter(map[i]));
+
+        return String.join(" ", pairs);
+    }
+
+    /**
+     * Unpack settings into a new Configuration.
+     * @param state packed settings.
+     * @param plugboard packed plugboard.
+     * @param reflector packed reflector pairs, ignored unless the settings
+     * have a reconfigurable reflector.
+     * @return the new Configuration.
+     */
+    public static Configuration unpack(long state, long plugboard, long reflector) {
+        Configuration config = new Configuration();
+        int[] map = new int[26];
+
+        for (int id = 0; id < Engine.ROTOR_COUNT; ++id)
+            config.setRotorState(id, getWheel(state, id), getRing(state, id), getPosition(state, id));
+
+        config.setFourthWheel(isFourthWheel(state));
+        if (isReconfigurable(state)) {
+            config.setReflectorPairs(toPairs(unpackInvolution(reflector, map), Model.PAIR_COUNT));
+        } else {
+            config.setReflectorChoice(Catalogue.getReflectorList().get(getReflectorIndex(state)));
+            config.setReconfigurable(false);
+        }
+
+        config.setPlugs(toPairs(unpackInvolution(plugboard, map), Model.FULL_COUNT));
+
+        return config;
+    }
+
+
+    /************************************************************************
+     * Hashing support code.
+     */
+
+    /**
+     * Mix the bits of a packed state (the SplitMix64 finalizer).
+     * @param state to hash.
+     * @return the hash.
+     */
+    public static long hash(long state) {
+        state = (state ^ (state >>> 30)) * 0xBF58476D1CE4E5B9L;
+        state = (state ^ (state >>> 27)) * 0x94D049BB133111EBL;
+
+        return state ^ (state >>> 31);
+    }
+
+    /**
+     * @param state packed settings.
+     * @param plugboard packed plugboard.
+     * @return the hash of both words.
+     */
+    public static long hash(long state, long plugboard) {
+        return hash(hash(state) + plugboard);
+    }
+
+}
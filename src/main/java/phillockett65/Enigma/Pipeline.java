@@ -0,0 +1,40 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Pipeline is the interface implemented by the classes that PipelineCompiler
+ * generates for a locked down configuration. Implementations hold no mutable
+ * state, so one instance may be shared by any number of Engines.
+ */
+package phillockett65.Enigma;
+
+public interface Pipeline {
+
+    /**
+     * Translate an index through every active Mapper at the given positions
+     * without advancing them.
+     * @param positions array of ROTOR_COUNT positions indexed by SLOW to 
+     * RIGHT.
+     * @param index to translate.
+     * @return the translated index.
+     */
+    public int translate(int[] positions, int index);
+
+}
@@ -0,0 +1,415 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PipelineCompiler is a class that generates a Pipeline implementation
+ * specialized for one locked down MachineSpec. The plugboard, reflector and
+ * rotor wiring become static final arrays of the generated class and the
+ * translation is a single straight line method with the fourth wheel and
+ * show branches already resolved, so the JIT sees one small monomorphic call
+ * in place of a virtual swap() for every stage of every letter.
+ *
+ * The project targets Java 11, which has no Lookup.defineHiddenClass(), so
+ * each generated class is defined by its own throwaway ClassLoader instead.
+ * This gives the same effect: the class is unloaded once the Pipeline is no
+ * longer referenced, so repeated lockdowns do not leak classes.
+ */
+package phillockett65.Enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PipelineCompiler {
+
+    private static final String CLASS_NAME = "phillockett65.Enigma.SpecializedPipeline";
+    private static final String INTERNAL_NAME = CLASS_NAME.replace('.', '/');
+    private static final String TABLE = "[I";
+
+    // Tables waiting to be picked up by the static initializer of the class
+    // being generated on this thread.
+    private static final ThreadLocal<int[][]> pending = new ThreadLocal<int[][]>();
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final Map<String, Integer> entries = new HashMap<String, Integer>();
+    private int poolCount = 1;
+
+    private final String[] names;
+    private final int[][] tables;
+    private final boolean fourthWheel;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. Collects the tables of the given MachineSpec, only 
+     * including the SLOW rotor if the fourth wheel is in use.
+     * @param spec to compile.
+     */
+    private PipelineCompiler(MachineSpec spec) {
+        fourthWheel = spec.isFourthWheel();
+
+        final int count = fourthWheel ? 10 : 8;
+        names = new String[count];
+        tables = new int[count][];
+
+        names[0] = "PLUGBOARD";
+        tables[0] = spec.getPlugboardMap();
+        names[1] = "REFLECTOR";
+        tables[1] = spec.getReflectorMap();
+
+        int i = 2;
+        for (int id = fourthWheel ? Engine.SLOW : Engine.LEFT; id < Engine.ROTOR_COUNT; ++id) {
+            names[i] = "RIGHT_TO_LEFT_" + id;
+            tables[i++] = spec.getRightToLeft(id);
+            names[i] = "LEFT_TO_RIGHT_" + id;
+            tables[i++] = spec.getLeftToRight(id);
+        }
+    }
+
+    /**
+     * Called by the static initializer of a generated class to collect its
+     * tables. Public only because the generated class is defined by another
+     * ClassLoader.
+     * @param index of the table.
+     * @return the table.
+     */
+    public static int[] pending(int index) { return pending.get()[index]; }
+
+
+    /************************************************************************
+     * Class file support code.
+     */
+
+    private static void u1(ByteArrayOutputStream output, int value) {
+        output.write(value);
+    }
+
+    private static void u2(ByteArrayOutputStream output, int value) {
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    private static void u4(ByteArrayOutputStream output, int value) {
+        u2(output, value >>> 16);
+        u2(output, value);
+    }
+
+    /**
+     * Add an entry to the constant pool if it is not already present.
+     * @param key that uniquely identifies the entry.
+     * @param tag of the entry.
+     * @param data of the entry, following the tag.
+     * @return the constant pool index of the entry.
+     */
+    private int constant(String key, int tag, byte[] data) {
+        Integer index = entries.get(key);
+        if (index == null) {
+            index = poolCount++;
+            entries.put(key, index);
+            u1(pool, tag);
+            pool.write(data, 0, data.length);
+        }
+
+        return index;
+    }
+
+    private static byte[] shorts(int... values) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int value : values)
+            u2(output, value);
+
+        return output.toByteArray();
+    }
+
+    private int utf8(String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        u2(data, bytes.length);
+        data.write(bytes, 0, bytes.length);
+
+        return constant("U" + text, 1, data.toByteArray());
+    }
+
+    private int classRef(String name) {
+        return constant("C" + name, 7, shorts(utf8(name)));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return constant("N" + name + " " + descriptor, 12, shorts(utf8(name), utf8(descriptor)));
+    }
+
+    private int fieldRef(String owner, String name, String descriptor) {
+        return constant("F" + owner + "." + name + " " + descriptor, 9,
+            shorts(classRef(owner), nameAndType(name, descriptor)));
+    }
+
+    private int methodRef(String owner, String name, String descriptor) {
+        return constant("M" + owner + "." + name + " " + descriptor, 10,
+            shorts(classRef(owner), nameAndType(name, descriptor)));
+    }
+
+    private int tableRef(int index) {
+        return fieldRef(INTERNAL_NAME, names[index], TABLE);
+    }
+
+    /**
+     * Append a method with a Code attribute. Generated code has no branches
+     * so no StackMapTable is needed.
+     * @param output class file being built.
+     * @param access flags of the method.
+     * @param name of the method.
+     * @param descriptor of the method.
+     * @param maxStack operand stack depth needed.
+     * @param maxLocals local variable slots needed.
+     * @param code bytecode of the method.
+     */
+    private void method(ByteArrayOutputStream output, int access, String name, String descriptor,
+        int maxStack, int maxLocals, byte[] code) {
+        u2(output, access);
+        u2(output, utf8(name));
+        u2(output, utf8(descriptor));
+        u2(output, 1);
+        u2(output, utf8("Code"));
+        u4(output, 12 + code.length);
+        u2(output, maxStack);
+        u2(output, maxLocals);
+        u4(output, code.length);
+        output.write(code, 0, code.length);
+        u2(output, 0);      // Exception table.
+        u2(output, 0);      // Attributes.
+    }
+
+
+    /************************************************************************
+     * Code generation support code.
+     */
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int ILOAD = 0x15;
+    private static final int ILOAD_2 = 0x1c;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int IALOAD = 0x2e;
+    private static final int ISTORE = 0x36;
+    private static final int ISTORE_2 = 0x3d;
+    private static final int IADD = 0x60;
+    private static final int IMUL = 0x68;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int PUTSTATIC = 0xb3;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    /**
+     * Static initializer that collects every table from pending().
+     * @return the bytecode.
+     */
+    private byte[] buildStaticInit() {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        final int pendingRef = methodRef(PipelineCompiler.class.getName().replace('.', '/'), "pending", "(I)" + TABLE);
+
+        for (int i = 0; i < tables.length; ++i) {
+            u1(code, BIPUSH);
+            u1(code, i);
+            u1(code, INVOKESTATIC);
+            u2(code, pendingRef);
+            u1(code, PUTSTATIC);
+            u2(code, tableRef(i));
+        }
+        u1(code, RETURN);
+
+        return code.toByteArray();
+    }
+
+    /**
+     * Default constructor that calls Object().
+     * @return the bytecode.
+     */
+    private byte[] buildConstructor() {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+        u1(code, ALOAD_0);
+        u1(code, INVOKESPECIAL);
+        u2(code, methodRef("java/lang/Object", "<init>", "()V"));
+        u1(code, RETURN);
+
+        return code.toByteArray();
+    }
+
+    /**
+     * @return the id of the left most active Rotor.
+     */
+    private int first() { return fourthWheel ? Engine.SLOW : Engine.LEFT; }
+
+    /**
+     * Local variable slot holding 26 times the position of the identified
+     * Rotor. Slot 1 is the positions array and slot 2 the index.
+     * @param id of Rotor (SLOW to RIGHT).
+     * @return the slot.
+     */
+    private static int rowSlot(int id) { return 3 + Engine.RIGHT - id; }
+
+    /**
+     * Emit index = table[row + index], or index = table[index] if there is 
+     * no row.
+     * @param code being built.
+     * @param table index of the table.
+     * @param slot holding the row offset, -1 for none.
+     */
+    private void lookup(ByteArrayOutputStream code, int table, int slot) {
+        u1(code, GETSTATIC);
+        u2(code, tableRef(table));
+        if (slot >= 0) {
+            u1(code, ILOAD);
+            u1(code, slot);
+            u1(code, ILOAD_2);
+            u1(code, IADD);
+        } else {
+            u1(code, ILOAD_2);
+        }
+        u1(code, IALOAD);
+        u1(code, ISTORE_2);
+    }
+
+    /**
+     * Pipeline.translate() unrolled for the active Rotors, matching 
+     * Engine.translateIndex().
+     * @return the bytecode.
+     */
+    private byte[] buildTranslate() {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        final int first = first();
+
+        for (int id = Engine.RIGHT; id >= first; --id) {
+            u1(code, ALOAD_1);
+            u1(code, ICONST_0 + id);
+            u1(code, IALOAD);
+            u1(code, BIPUSH);
+            u1(code, 26);
+            u1(code, IMUL);
+            u1(code, ISTORE);
+            u1(code, rowSlot(id));
+        }
+
+        lookup(code, 0, -1);
+        for (int id = Engine.RIGHT; id >= first; --id)
+            lookup(code, 2 + (id - first) * 2, rowSlot(id));
+
+        lookup(code, 1, -1);
+
+        for (int id = first; id <= Engine.RIGHT; ++id)
+            lookup(code, 3 + (id - first) * 2, rowSlot(id));
+
+        u1(code, GETSTATIC);
+        u2(code, tableRef(0));
+        u1(code, ILOAD_2);
+        u1(code, IALOAD);
+        u1(code, IRETURN);
+
+        return code.toByteArray();
+    }
+
+    /**
+     * Build the complete class file.
+     * @return the class file bytes.
+     */
+    private byte[] buildClass() {
+        final int thisClass = classRef(INTERNAL_NAME);
+        final int superClass = classRef("java/lang/Object");
+        final int pipeline = classRef(Pipeline.class.getName().replace('.', '/'));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        u2(body, 0x0031);           // public final super.
+        u2(body, thisClass);
+        u2(body, superClass);
+        u2(body, 1);
+        u2(body, pipeline);
+
+        u2(body, tables.length);
+        for (int i = 0; i < tables.length; ++i) {
+            u2(body, 0x001a);       // private static final.
+            u2(body, utf8(names[i]));
+            u2(body, utf8(TABLE));
+            u2(body, 0);
+        }
+
+        u2(body, 3);
+        method(body, 0x0008, "<clinit>", "()V", 1, 0, buildStaticInit());
+        method(body, 0x0001, "<init>", "()V", 1, 1, buildConstructor());
+        method(body, 0x0011, "translate", "([II)I", 3, rowSlot(first()) + 1, buildTranslate());
+        u2(body, 0);                // Attributes.
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        u4(output, 0xcafebabe);
+        u2(output, 0);
+        u2(output, 55);             // Java 11.
+        u2(output, poolCount);
+        output.write(pool.toByteArray(), 0, pool.size());
+        output.write(body.toByteArray(), 0, body.size());
+
+        return output.toByteArray();
+    }
+
+
+    /************************************************************************
+     * Support code for static public interface.
+     */
+
+    /**
+     * ClassLoader for a single generated class, so the class can be unloaded
+     * along with its Pipeline.
+     */
+    private static class PipelineLoader extends ClassLoader {
+        PipelineLoader() { super(Pipeline.class.getClassLoader()); }
+
+        Class<?> define(byte[] bytes) {
+            return defineClass(CLASS_NAME, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Generate and load a Pipeline specialized for the given MachineSpec.
+     * @param spec to compile.
+     * @return the new Pipeline.
+     * @throws IllegalStateException if the generated class cannot be loaded.
+     */
+    public static Pipeline compile(MachineSpec spec) {
+        PipelineCompiler compiler = new PipelineCompiler(spec);
+        final byte[] bytes = compiler.buildClass();
+
+        pending.set(compiler.tables);
+        try {
+            Class<?> generated = new PipelineLoader().define(bytes);
+
+            return (Pipeline)generated.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Unable to load generated pipeline", e);
+        } finally {
+            pending.remove();
+        }
+    }
+
+}
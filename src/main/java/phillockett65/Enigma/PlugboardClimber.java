@@ -0,0 +1,448 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PlugboardClimber is a class that recovers the plugboard for a known wheel
+ * order, ring settings and start positions by hill-climbing. The scrambler
+ * permutation of every key press is captured once, and the current plugboard
+ * is held as a simple map. A trial swap only changes the letters it re-plugs,
+ * so only the key presses that use those letters on the way in or on the way
+ * out are re-decrypted, and only the n-grams covering them are re-scored.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+public class PlugboardClimber {
+
+    private final Configuration config;
+    private final NGramTable ngrams;
+    private final int maxPlugs;
+
+    private final int order;
+    private final int length;
+    private final int[] cipher;
+    private final byte[] scrambler;     // Permutation of each key press.
+    private final int[][] byCipher;     // Key presses of each cipher letter.
+
+    private final int[] plugs = new int[26];
+    private int plugCount = 0;
+    private final int[] plain;
+    private final int[] mid;            // Scrambler output of each key press.
+    private final int[][] byMid;        // Key presses of each scrambler output.
+    private final int[] midCount = new int[26];
+    private final int[] midSlot;        // Position of each key press in byMid.
+    private double score;
+
+    private int stamp = 0;              // Marks entries of the current trial.
+    private final int[] positionStamp;
+    private final int[] windowStamp;
+    private final int[] positions;      // Key presses changed by the trial.
+    private final int[] newMid;
+    private final int[] oldPlain;
+    private final int[] windows;        // N-grams changed by the trial.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. The plugboard of the given settings is ignored.
+     * @param cipherText intercepted message, non-letters are ignored.
+     * @param config wheel order, ring settings and start positions.
+     * @param ngrams table used for scoring.
+     * @param maxPlugs largest number of plugs to use.
+     * @throws IllegalArgumentException if the settings are not valid or the
+     * message is shorter than an n-gram.
+     */
+    public PlugboardClimber(String cipherText, Configuration config, NGramTable ngrams, int maxPlugs) {
+        this.config = Configuration.decode(config.encode());
+        this.config.setPlugs("");
+        this.ngrams = ngrams;
+        this.maxPlugs = Math.min(maxPlugs, 13);
+
+        order = ngrams.getOrder();
+        cipher = Mapper.lettersToIndices(cipherText);
+        length = cipher.length;
+        if (length < order)
+            throw new IllegalArgumentException("Message is too short");
+
+        // Capture the scrambler, which is unchanged by the plugboard.
+        Engine engine = this.config.buildEngine();
+        scrambler = new byte[length * 26];
+        int[] permutation = new int[26];
+        for (int k = 0; k < length; ++k) {
+            engine.advanceRotors();
+            engine.getPermutation(permutation);
+            for (int i = 0; i < 26; ++i)
+                scrambler[k * 26 + i] = (byte)permutation[i];
+        }
+
+        int[] counts = new int[26];
+        for (int c : cipher)
+            counts[c]++;
+        byCipher = new int[26][];
+        for (int letter = 0; letter < 26; ++letter)
+            byCipher[letter] = new int[counts[letter]];
+        counts = new int[26];
+        for (int k = 0; k < length; ++k)
+            byCipher[cipher[k]][counts[cipher[k]]++] = k;
+
+        plain = new int[length];
+        mid = new int[length];
+        byMid = new int[26][length];
+        midSlot = new int[length];
+
+        positionStamp = new int[length];
+        windowStamp = new int[length];
+        positions = new int[length];
+        newMid = new int[length];
+        oldPlain = new int[length];
+        windows = new int[length];
+
+        for (int i = 0; i < 26; ++i)
+            plugs[i] = i;
+        for (int k = 0; k < length; ++k) {
+            mid[k] = scrambler[k * 26 + cipher[k]];
+            plain[k] = mid[k];
+            addMid(k);
+        }
+        score = ngrams.score(plain);
+    }
+
+    private void addMid(int k) {
+        final int letter = mid[k];
+        midSlot[k] = midCount[letter];
+        byMid[letter][midCount[letter]++] = k;
+    }
+
+    private void removeMid(int k) {
+        final int letter = mid[k];
+        final int last = byMid[letter][--midCount[letter]];
+        byMid[letter][midSlot[k]] = last;
+        midSlot[last] = midSlot[k];
+    }
+
+
+    /************************************************************************
+     * Trial support code.
+     */
+
+    /**
+     * Mark a key press as changed by the current trial.
+     * @param k index of the key press.
+     * @return true if it was not already marked.
+     */
+    private boolean mark(int k) {
+        if (positionStamp[k] == stamp)
+            return false;
+
+        positionStamp[k] = stamp;
+        return true;
+    }
+
+    /**
+     * Re-plug a letter and its new partner, unplugging any old partners.
+     * @param a letter.
+     * @param b new partner of a, or a to unplug it.
+     * @param map plugboard map to update.
+     * @return bit mask of the letters whose mapping changed.
+     */
+    private static int connect(int a, int b, int[] map) {
+        int mask = 0;
+        final int[] ends = { a, b };
+        for (int end : ends) {
+            final int old = map[end];
+            if (old != end) {
+                map[old] = old;
+                mask |= 1 << old;
+            }
+            map[end] = end;
+            mask |= 1 << end;
+        }
+
+        map[a] = b;
+        map[b] = a;
+
+        return mask;
+    }
+
+    /**
+     * Score the plugboard given by the trial map, which differs from the
+     * current plugboard for the letters in mask, and keep it if it scores
+     * higher.
+     * @param trial plugboard map.
+     * @param mask bit mask of the letters whose mapping changed.
+     * @return true if the trial was kept.
+     */
+    private boolean trial(int[] trial, int mask) {
+        ++stamp;
+
+        // Find the key presses that use a changed letter on either side.
+        int count = 0;
+        for (int letter = 0; letter < 26; ++letter) {
+            if ((mask & (1 << letter)) == 0)
+                continue;
+
+            for (int k : byCipher[letter])
+                if (mark(k))
+                    positions[count++] = k;
+
+            final int[] list = byMid[letter];
+            for (int i = 0; i < midCount[letter]; ++i)
+                if (mark(list[i]))
+                    positions[count++] = list[i];
+        }
+
+        // Find the n-grams that cover those key presses.
+        int windowCount = 0;
+        for (int i = 0; i < count; ++i) {
+            final int k = positions[i];
+            final int first = Math.max(0, k - order + 1);
+            final int last = Math.min(k, length - order);
+            for (int s = first; s <= last; ++s)
+                if (windowStamp[s] != stamp) {
+                    windowStamp[s] = stamp;
+                    windows[windowCount++] = s;
+                }
+        }
+
+        double delta = 0;
+        for (int i = 0; i < windowCount; ++i)
+            delta -= ngrams.get(plain, windows[i]);
+
+        for (int i = 0; i < count; ++i) {
+            final int k = positions[i];
+            final int c = cipher[k];
+            newMid[i] = ((mask & (1 << c)) == 0) ? mid[k] : scrambler[k * 26 + trial[c]];
+            oldPlain[i] = plain[k];
+            plain[k] = trial[newMid[i]];
+        }
+
+        for (int i = 0; i < windowCount; ++i)
+            delta += ngrams.get(plain, windows[i]);
+
+        if (delta <= 0) {
+            for (int i = 0; i < count; ++i)
+                plain[positions[i]] = oldPlain[i];
+
+            return false;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            final int k = positions[i];
+            if (mid[k] != newMid[i]) {
+                removeMid(k);
+                mid[k] = newMid[i];
+                addMid(k);
+            }
+        }
+        System.arraycopy(trial, 0, plugs, 0, 26);
+        score += delta;
+
+        plugCount = 0;
+        for (int i = 0; i < 26; ++i)
+            if (plugs[i] > i)
+                ++plugCount;
+
+        return true;
+    }
+
+
+    /************************************************************************
+     * Search support code.
+     */
+
+    /**
+     * Try every way of re-plugging a pair of letters: connecting them, 
+     * disconnecting them or, if either is plugged, connecting each to the
+     * partner of the other.
+     * @param a letter.
+     * @param b letter.
+     * @param trial working map.
+     * @return true if the plugboard was improved.
+     */
+    private boolean improve(int a, int b, int[] trial) {
+        final int pa = plugs[a];
+        final int pb = plugs[b];
+
+        if (pa == b) {
+            System.arraycopy(plugs, 0, trial, 0, 26);
+            return trial(trial, connect(a, a, trial));
+        }
+
+        boolean improved = false;
+        final int added = ((pa == a) ? 1 : 0) + ((pb == b) ? 1 : 0) - 1;
+        if (plugCount + added <= maxPlugs) {
+            System.arraycopy(plugs, 0, trial, 0, 26);
+            improved = trial(trial, connect(a, b, trial));
+        }
+
+        if (!improved && (pa != a) && (pb != b)) {
+            System.arraycopy(plugs, 0, trial, 0, 26);
+            int mask = connect(a, pb, trial);
+            mask |= connect(b, pa, trial);
+            improved = trial(trial, mask);
+        }
+
+        return improved;
+    }
+
+    /**
+     * Hill-climb until no single change of a pair of letters improves the
+     * score.
+     * @return the best settings found with their score.
+     */
+    public Candidate climb() {
+        int[] trial = new int[26];
+
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int a = 0; a < 26; ++a)
+                for (int b = a + 1; b < 26; ++b)
+                    if (improve(a, b, trial))
+                        improved = true;
+        }
+
+        return getCandidate();
+    }
+
+    public double getScore() { return score; }
+
+    /**
+     * @return the current plugboard as pairs, e.g. "AB CD".
+     */
+    public String getPlugs() {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 26; ++i)
+            if (plugs[i] > i) {
+                if (output.length() > 0)
+                    output.append(' ');
+                output.append(Mapper.indexToLetter(i) + Mapper.indexToLetter(plugs[i]));
+            }
+
+        return output.toString();
+    }
+
+    /**
+     * @return the current decryption.
+     */
+    public String getPlainText() {
+        StringBuilder output = new StringBuilder(length);
+        for (int p : plain)
+            output.append((char)Mapper.indexToChar(p));
+
+        return output.toString();
+    }
+
+    /**
+     * @return the current settings with their score.
+     */
+    public Candidate getCandidate() {
+        Configuration result = Configuration.decode(config.encode());
+        result.setPlugs(getPlugs());
+
+        return new Candidate(score, result);
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: PlugboardClimber [options] settings ciphertext");
+        System.err.println("Recovers the plugboard for settings encoded as by Configuration.encode().");
+        System.err.println("  -f             ciphertext is the name of a file holding the message");
+        System.err.println("  -l file        n-gram tables written by NGramBuilder");
+        System.err.println("  -t file        corpus used to build the n-gram table instead");
+        System.err.println("  -n order       n-gram length, 2 to 4 (default 3)");
+        System.err.println("  -m count       largest number of plugs (default " + Model.PLUG_COUNT + ")");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        boolean file = false;
+        String tables = null;
+        String corpus = null;
+        int order = 3;
+        int maxPlugs = Model.PLUG_COUNT;
+        Configuration config = null;
+        ArrayList<String> values = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-f": file = true; break;
+                case "-l": tables = args[++i]; break;
+                case "-t": corpus = args[++i]; break;
+                case "-n": order = Integer.parseInt(args[++i]); break;
+                case "-m": maxPlugs = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    values.add(arg);
+                }
+            }
+
+            if ((values.size() != 2) || ((tables == null) && (corpus == null)))
+                throw new IllegalArgumentException("Expected settings, ciphertext and n-gram tables or a corpus");
+
+            config = Configuration.decode(values.get(0));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            String cipherText = values.get(1);
+            if (file)
+                cipherText = new String(Files.readAllBytes(Paths.get(cipherText)));
+
+            NGramTable ngrams = (tables != null) ? NGramTable.load(Paths.get(tables), order) :
+                NGramTable.fromCorpus(order, new String(Files.readAllBytes(Paths.get(corpus))));
+            PlugboardClimber climber = new PlugboardClimber(cipherText, config, ngrams, maxPlugs);
+            System.out.println(climber.climb());
+            System.out.println(climber.getPlainText());
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
@@ -34,9 +34,13 @@ public class Rotor extends Mapper {
     private int[] leftMap;
     private int[] rightMap;
 
+    private final int[][] rightTable;  // rightMap for each offset.
+    private final int[][] leftTable;   // leftMap for each offset.
+    private int[] rightRow;            // rightTable entry for current offset.
+    private int[] leftRow;             // leftTable entry for current offset.
+
     private int ringSetting;
     private int offset;
-    private int back;       // Inverse of offset.
 
     private final boolean[] turnover;
     private final boolean[] notches;
@@ -93,6 +97,8 @@ public class Rotor extends Mapper {
         data = rd;
         rightMap = new int[26];
         leftMap = new int[26];
+        rightTable = new int[26][26];
+        leftTable = new int[26][26];
 
         setRingSetting(ring);
         setOffset(0);
@@ -109,12 +115,13 @@ public class Rotor extends Mapper {
     public boolean isTurnoverPoint(int index) { return turnover[index]; }
     public boolean isNotchPoint(int index) { return notches[index]; }
 
+    public RotorData getData() { return data; }
     public int getRingSetting()	{ return ringSetting; }
 
     public int getOffset() { return offset; }
 
-    private int leftToRight(int index) { return leftMap[index]; }
-    private int rightToLeft(int index) { return rightMap[index]; }
+    private int leftToRight(int index) { return leftRow[index]; }
+    private int rightToLeft(int index) { return rightRow[index]; }
 
 
     /************************************************************************
@@ -124,7 +131,8 @@ public class Rotor extends Mapper {
     public void setOffset(int value) { 
         // System.out.println("setOffset(" + getId() + " " + value + ")");
         offset = value % 26;
-        back = 26 - offset;
+        rightRow = rightTable[offset];
+        leftRow = leftTable[offset];
     }
 
     /**
@@ -134,7 +142,8 @@ public class Rotor extends Mapper {
      * @param index to translate.
      * @return the translated index.
      */
-    private int swap(int direction, int index) {
+    @Override
+    public int swap(int direction, int index) {
         if (direction == RIGHT_TO_LEFT) 
             return rightToLeft(index);
 
@@ -149,24 +158,11 @@ public class Rotor extends Mapper {
      */
     private int rotate(int index, int offset) { return (index + offset) % 26; }
 
-    /**
-     * Translates (swaps) an index (numerical equivalent of the letter) to 
-     * another using the map.
-     * @param direction of mapping. Eg A may map to J, but J may not map to A.
-     * @param index to translate.
-     * @param show the translation step on the command line.
-     * @return the translated index.
-     */
-    public int swap(int direction, int index, boolean show) {
-
-        int output = swap(direction, rotate(index, offset));
-        output = rotate(output, back);
-
-        if (show)
-            System.out.print(getId() + "[" + indexToLetter(offset) + "](" + indexToLetter(index) + "->" + indexToLetter(output) + ")  ");
+    @Override
+    public int swapRightToLeft(int index) { return rightToLeft(index); }
 
-        return output;
-    }
+    @Override
+    public int swapLeftToRight(int index) { return leftToRight(index); }
 
     /**
      * Update the left and right mappings using the map and ring setting.
@@ -182,6 +178,27 @@ public class Rotor extends Mapper {
 
         for (int i = 0; i < getMapLength(); ++i)
             leftMap[rightMap[i]] = i;
+
+        buildTables();
+    }
+
+    /**
+     * Build the offset-shifted left and right mappings for every offset, so 
+     * that a translation at any offset is a single array read with no 
+     * modulo arithmetic.
+     */
+    private void buildTables() {
+        for (int off = 0; off < 26; ++off) {
+            final int back = (26 - off) % 26;
+            for (int i = 0; i < 26; ++i) {
+                rightTable[off][i] = rotate(rightMap[rotate(i, off)], back);
+                leftTable[off][i] = rotate(leftMap[rotate(i, off)], back);
+            }
+        }
+
+        // Refresh the current rows if the offset has already been set.
+        if (rightRow != null)
+            setOffset(offset);
     }
 
 
@@ -23,6 +23,7 @@
  */
 package phillockett65.Enigma;
 
+import java.util.function.IntConsumer;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -138,6 +139,18 @@ public class RotorControl extends VBox {
     private void setRotorValue(String value) { rotorOffsetSVF.setValue(value); }
     public void setRotorIndex(int index) { setRotorValue(ringList.get(index % 26)); }
     public void increment(int steps) { rotorOffsetSVF.increment(steps); }
+
+    /**
+     * Register a listener to be called with the new index whenever the rotor
+     * offset spinner changes. Must be called after init().
+     * @param listener to call with the index of the new rotor offset.
+     */
+    public void setOffsetListener(IntConsumer listener) {
+        rotorOffsetSVF.valueProperty().addListener( (v, oldValue, newValue) -> {
+            if (newValue != null)
+                listener.accept(valueToIndex(newValue));
+        });
+    }
     
     /**
      * Set up the custom controller
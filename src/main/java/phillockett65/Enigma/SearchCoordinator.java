@@ -0,0 +1,475 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SearchCoordinator is a class that shares the work units of a KeySearch
+ * between SearchWorker processes over TCP. Workers connect, are sent the
+ * message and KeySpace, then repeatedly ask for a range of work units and
+ * return the best keys of each unit. A worker holds a lease on its range that
+ * is renewed by every line it sends, including the heartbeats it sends while
+ * busy. If the lease expires the connection is closed and the units not yet
+ * completed are handed out again. Progress can be recorded in a Checkpoint.
+ *
+ * The protocol is line based text. From the worker: "HELLO", "NEXT",
+ * "HEARTBEAT", "RESULT unit score settings" and "DONE unit". From the
+ * coordinator: "JOB space<TAB>message<TAB>capacity", "WORK from to" and
+ * "STOP".
+ */
+package phillockett65.Enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class SearchCoordinator {
+
+    public static final long HEARTBEAT = 1000;      // Milliseconds.
+
+    private final KeySearch search;
+    private final ServerSocket server;
+    private final int rangeSize;
+    private long lease = 5 * HEARTBEAT;
+
+    private final TopList results;
+    private final long total;
+    private final BitSet done = new BitSet();
+    private long doneCount = 0;
+    private final ArrayDeque<long[]> queue = new ArrayDeque<long[]>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<Connection>();
+    private Checkpoint checkpoint = null;
+    private IOException failure = null;         // Checkpoint write failure.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. Opens the server socket.
+     * @param search defining the message, KeySpace and number of results.
+     * @param address to listen on, e.g. the loopback address.
+     * @param port to listen on, or 0 for any free port.
+     * @param rangeSize number of work units handed out at a time.
+     * @throws IOException if the socket can not be opened.
+     */
+    public SearchCoordinator(KeySearch search, InetAddress address, int port, int rangeSize) throws IOException {
+        this.search = search;
+        this.server = new ServerSocket(port, 50, address);
+        this.rangeSize = Math.max(1, rangeSize);
+        this.results = new TopList(search.getCapacity());
+        this.total = search.getSpace().getUnitCount();
+    }
+
+    public int getPort() { return server.getLocalPort(); }
+
+    /**
+     * @param millis time without hearing from a busy worker before its work
+     * is handed out again.
+     */
+    public void setLease(long millis) { lease = millis; }
+
+    /**
+     * Record progress in the given Checkpoint, skipping the units it has 
+     * already completed. Must be called before run().
+     * @param checkpoint for the search, or null.
+     */
+    public synchronized void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        if (checkpoint != null)
+            for (Candidate candidate : checkpoint.getResults())
+                results.offer(candidate);
+    }
+
+    public synchronized long getDoneCount() { return doneCount; }
+
+
+    /************************************************************************
+     * Work allocation support code.
+     */
+
+    /**
+     * Take the next range with work still to do.
+     * @return the range as from and to unit indices, or null if none.
+     */
+    private synchronized long[] take() {
+        while (!queue.isEmpty()) {
+            long[] range = queue.poll();
+            while ((range[0] < range[1]) && done.get((int)range[0]))
+                ++range[0];
+            if (range[0] < range[1])
+                return range;
+        }
+
+        return null;
+    }
+
+    private synchronized void requeue(long[] range) {
+        queue.addFirst(range);
+        notifyAll();
+    }
+
+    private synchronized boolean isFinished() { return doneCount == total; }
+
+    private synchronized boolean isStopped() { return isFinished() || (failure != null); }
+
+    /**
+     * Record a completed unit, ignoring duplicates from reassigned work. If
+     * the Checkpoint can not be written the failure is recorded, which stops
+     * the search, and run() rethrows it.
+     * @param unit index of the work unit.
+     * @param best results of the unit.
+     */
+    private synchronized void complete(long unit, List<Candidate> best) {
+        if ((unit < 0) || (unit >= total) || done.get((int)unit))
+            return;
+
+        for (Candidate candidate : best)
+            results.offer(candidate);
+
+        if (checkpoint != null) {
+            try {
+                checkpoint.complete(unit, best);
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+                notifyAll();
+                return;
+            }
+        }
+
+        done.set((int)unit);
+        ++doneCount;
+        notifyAll();
+    }
+
+
+    /************************************************************************
+     * Connection support code.
+     */
+
+    /**
+     * A connected worker and its lease.
+     */
+    private class Connection implements Runnable {
+        private final Socket socket;
+        private volatile long lastSeen = System.currentTimeMillis();
+        private volatile long[] range = null;
+
+        public Connection(Socket socket) { this.socket = socket; }
+
+        public boolean isExpired(long now) {
+            return (range != null) && (now - lastSeen > lease);
+        }
+
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+
+        /**
+         * Wait for work to hand out.
+         * @return the next range, or null when the search is finished or has
+         * failed.
+         * @throws InterruptedException if interrupted.
+         */
+        private long[] waitForWork() throws InterruptedException {
+            synchronized (SearchCoordinator.this) {
+                while (true) {
+                    if (isStopped())
+                        return null;
+
+                    long[] next = take();
+                    if (next != null)
+                        return next;
+
+                    SearchCoordinator.this.wait(HEARTBEAT);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            HashMap<Long, ArrayList<Candidate>> pending = new HashMap<Long, ArrayList<Candidate>>();
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+                if (!"HELLO".equals(reader.readLine()))
+                    return;
+
+                writer.println("JOB " + search.getSpace().describe() + "\t" + search.getCipherText() + "\t" + search.getCapacity());
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lastSeen = System.currentTimeMillis();
+                    final String[] fields = line.split(" ", 4);
+
+                    switch (fields[0]) {
+                    case "HEARTBEAT":
+                        break;
+
+                    case "RESULT":
+                        pending.computeIfAbsent(Long.parseLong(fields[1]), k -> new ArrayList<Candidate>())
+                            .add(new Candidate(Double.parseDouble(fields[2]), Configuration.decode(fields[3])));
+                        break;
+
+                    case "DONE":
+                        final long unit = Long.parseLong(fields[1]);
+                        ArrayList<Candidate> best = pending.remove(unit);
+                        complete(unit, (best == null) ? new ArrayList<Candidate>() : best);
+                        break;
+
+                    case "NEXT":
+                        range = null;
+                        final long[] next = waitForWork();
+                        if (next == null) {
+                            writer.println("STOP");
+                            return;
+                        }
+                        lastSeen = System.currentTimeMillis();
+                        range = next;
+                        writer.println("WORK " + next[0] + " " + next[1]);
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException("Unexpected message: " + line);
+                    }
+                }
+            } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                // The worker has gone or is broken, its work is reassigned.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                final long[] lost = range;
+                range = null;
+                if (lost != null)
+                    requeue(lost);
+                connections.remove(this);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Accept workers until the server socket is closed.
+     */
+    private void accept() {
+        try {
+            while (true) {
+                Connection connection = new Connection(server.accept());
+                connections.add(connection);
+                startThread(connection, "SearchCoordinator connection");
+            }
+        } catch (IOException e) {
+            // Server socket closed.
+        }
+    }
+
+    /**
+     * Close the connections of workers whose lease has expired.
+     */
+    private void monitor() {
+        try {
+            while (!server.isClosed()) {
+                Thread.sleep(HEARTBEAT);
+                final long now = System.currentTimeMillis();
+                for (Connection connection : connections)
+                    if (connection.isExpired(now))
+                        connection.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hand out every work unit and wait for them to be completed.
+     * @return the best results, highest score first.
+     * @throws IOException if the Checkpoint can not be written.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public ArrayList<Candidate> run() throws IOException, InterruptedException {
+        synchronized (this) {
+            for (long from = 0; from < total; from += rangeSize)
+                queue.add(new long[] { from, Math.min(from + rangeSize, total) });
+            if (checkpoint != null)
+                for (long unit = 0; unit < total; ++unit)
+                    if (checkpoint.isDone(unit)) {
+                        done.set((int)unit);
+                        ++doneCount;
+                    }
+        }
+
+        startThread(this::accept, "SearchCoordinator accept");
+        startThread(this::monitor, "SearchCoordinator monitor");
+
+        synchronized (this) {
+            while (!isStopped())
+                wait(HEARTBEAT);
+
+            if (failure != null)
+                throw failure;
+        }
+
+        return results.getResults();
+    }
+
+    /**
+     * Stop accepting workers and close the connections.
+     */
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        for (Connection connection : connections)
+            connection.close();
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: SearchCoordinator [options] ciphertext");
+        System.err.println("Shares a key search between SearchWorker processes.");
+        System.err.println("  -f                  ciphertext is the name of a file holding the message");
+        System.err.println("  -r \"id,id\"          reflectors (default \"" + WheelOrders.DEFAULT_REFLECTOR + "\")");
+        System.err.println("  -4 \"Beta,Gamma\"     fourth wheels (default none)");
+        System.err.println("  -w \"I,II,III\"       rotors available (default \"" + String.join(",", WheelOrders.DEFAULT_WHEELS) + "\")");
+        System.err.println("  -g count            ring settings searched from the right, 0 to 2 (default 1)");
+        System.err.println("  -k count            number of results to show (default 10)");
+        System.err.println("  -c file             checkpoint file, resumed if present");
+        System.err.println("  -p port             port to listen on (default 7649)");
+        System.err.println("  -u count            work units per range (default 16)");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        List<String> reflectors = Arrays.asList(WheelOrders.DEFAULT_REFLECTOR);
+        List<String> fourthWheels = new ArrayList<String>();
+        List<String> wheels = Arrays.asList(WheelOrders.DEFAULT_WHEELS);
+        int ringRotors = 1;
+        int capacity = 10;
+        String checkpointFile = null;
+        int port = 7649;
+        int rangeSize = 16;
+        boolean file = false;
+        String cipherText = null;
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-f": file = true; break;
+                case "-r": reflectors = KeySpace.splitList(args[++i]); break;
+                case "-4": fourthWheels = KeySpace.splitList(args[++i]); break;
+                case "-w": wheels = KeySpace.splitList(args[++i]); break;
+                case "-g": ringRotors = Integer.parseInt(args[++i]); break;
+                case "-k": capacity = Integer.parseInt(args[++i]); break;
+                case "-c": checkpointFile = args[++i]; break;
+                case "-p": port = Integer.parseInt(args[++i]); break;
+                case "-u": rangeSize = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-") || (cipherText != null))
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                    cipherText = arg;
+                }
+            }
+
+            if (cipherText == null)
+                throw new IllegalArgumentException("Expected ciphertext");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            if (file)
+                cipherText = new String(Files.readAllBytes(Paths.get(cipherText)));
+
+            // The scorer is chosen by each worker.
+            KeySearch search = new KeySearch(cipherText, new KeySpace(reflectors, fourthWheels, wheels, ringRotors),
+                KeyScorer.coincidence(), capacity);
+            SearchCoordinator coordinator = new SearchCoordinator(search, null, port, rangeSize);
+
+            ArrayList<Candidate> found;
+            if (checkpointFile == null) {
+                found = coordinator.run();
+            } else {
+                try (Checkpoint checkpoint = new Checkpoint(Paths.get(checkpointFile), search.describe())) {
+                    coordinator.setCheckpoint(checkpoint);
+                    found = coordinator.run();
+                }
+            }
+            coordinator.close();
+
+            for (Candidate candidate : found)
+                System.out.println(candidate);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getCause().getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            System.exit(3);
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SearchWorker is a class that connects to a SearchCoordinator and searches
+ * the ranges of work units it is given, using a local KeySearch and KeyScorer
+ * with the units of each range run on a parallel stream. A heartbeat is sent
+ * while busy to renew the lease on the range. See SearchCoordinator for the
+ * protocol.
+ */
+package phillockett65.Enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+public class SearchWorker {
+
+    private final String host;
+    private final int port;
+    private final KeyScorer scorer;
+
+    private PrintWriter writer;
+    private long completed = 0;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param host of the SearchCoordinator.
+     * @param port of the SearchCoordinator.
+     * @param scorer used to score each decryption.
+     */
+    public SearchWorker(String host, int port, KeyScorer scorer) {
+        this.host = host;
+        this.port = port;
+        this.scorer = scorer;
+    }
+
+    public synchronized long getCompleted() { return completed; }
+
+
+    /************************************************************************
+     * Search support code.
+     */
+
+    private synchronized void send(String line) { writer.println(line); }
+
+    /**
+     * Search a work unit and send its results, as one group of lines.
+     * @param search for the job.
+     * @param unit index of the work unit.
+     */
+    private void runUnit(KeySearch search, long unit) {
+        TopList best = new TopList(search.getCapacity());
+        search.searchUnit(unit, best);
+
+        synchronized (this) {
+            for (Candidate candidate : best.getResults())
+                send("RESULT " + unit + " " + candidate.getScore() + " " + candidate.getConfiguration().encode());
+            send("DONE " + unit);
+            ++completed;
+        }
+    }
+
+    /**
+     * Connect to the coordinator and search ranges until told to stop.
+     * @throws IOException if the connection fails or the coordinator sends
+     * something unexpected.
+     */
+    public void run() throws IOException {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "SearchWorker heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (Socket socket = new Socket(host, port);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+
+            writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            send("HELLO");
+
+            String line = reader.readLine();
+            if ((line == null) || !line.startsWith("JOB "))
+                throw new IOException("Unexpected reply: " + line);
+
+            final String[] job = line.substring(4).split("\t");
+            if (job.length != 3)
+                throw new IOException("Invalid job: " + line);
+
+            final KeySearch search;
+            try {
+                search = new KeySearch(job[1], KeySpace.decode(job[0]), scorer, Integer.parseInt(job[2]));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid job: " + e.getMessage());
+            }
+
+            heartbeat.scheduleAtFixedRate(() -> send("HEARTBEAT"),
+                SearchCoordinator.HEARTBEAT, SearchCoordinator.HEARTBEAT, TimeUnit.MILLISECONDS);
+
+            while (true) {
+                send("NEXT");
+                line = reader.readLine();
+                if ((line == null) || line.equals("STOP"))
+                    break;
+
+                final String[] fields = line.split(" ");
+                if ((fields.length != 3) || !fields[0].equals("WORK"))
+                    throw new IOException("Unexpected message: " + line);
+
+                final long from;
+                final long to;
+                try {
+                    from = Long.parseLong(fields[1]);
+                    to = Long.parseLong(fields[2]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Unexpected message: " + line);
+                }
+                LongStream.range(from, to).parallel().forEach(unit -> runUnit(search, unit));
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: SearchWorker [options] host [port]");
+        System.err.println("Searches work units handed out by a SearchCoordinator (default port 7649).");
+        System.err.println("  -l file        score with n-gram tables written by NGramBuilder");
+        System.err.println("  -n order       n-gram length (default 3)");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        String tables = null;
+        int order = 3;
+        String host = null;
+        int port = 7649;
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-l": tables = args[++i]; break;
+                case "-n": order = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    if (host == null)
+                        host = arg;
+                    else
+                        port = Integer.parseInt(arg);
+                }
+            }
+
+            if (host == null)
+                throw new IllegalArgumentException("Expected host");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            final KeyScorer scorer = (tables == null) ? KeyScorer.coincidence() :
+                KeyScorer.ngrams(NGramTable.load(Paths.get(tables), order));
+            new SearchWorker(host, port, scorer).run();
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
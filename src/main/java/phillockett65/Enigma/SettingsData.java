@@ -117,6 +117,24 @@ public class SettingsData {
     public int[] getOffsets(int index) { return offsets[index]; }
 
     public String getPlugboard() { return plugboard; }
+
+    /**
+     * Build the headless equivalent of Model.dailySettings().
+     * @param quarter index of the indicator used for the start positions.
+     * @return the settings as a Configuration.
+     */
+    public Configuration getConfiguration(int quarter) {
+        Configuration config = new Configuration();
+        config.setReflectorPairs(reflector);
+        config.setFourthWheel(false);
+
+        for (int i = 0; i < Engine.ROTOR_COUNT; ++i)
+            config.setRotorState(i, rotors[i], ringSettings[i], offsets[i][quarter]);
+
+        config.setPlugs(plugboard);
+
+        return config;
+    }
   
  
     /************************************************************************
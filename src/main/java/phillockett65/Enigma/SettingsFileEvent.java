@@ -0,0 +1,48 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SettingsFileEvent is the Java Flight Recorder event committed by the
+ * DataStore for each read or write of a settings file.
+ */
+package phillockett65.Enigma;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("phillockett65.Enigma.SettingsFile")
+@Label("Settings File")
+@Category("Enigma")
+@Description("Settings file read or written by the DataStore")
+public class SettingsFileEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Write")
+    @Description("True for a write, false for a read")
+    boolean write;
+
+    @Label("Success")
+    boolean success;
+
+}
@@ -0,0 +1,238 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SignalTrace is an observer that records the signal path of each key press
+ * (the key, every Mapper's input and output, and the lamp) as packed ints in
+ * a preallocated ring buffer. The translating thread only stores ints, and a
+ * background thread formats and prints the events in the same layout the
+ * show option has always used. Room for a whole signal path is reserved when
+ * the key is recorded and the path is only made visible to the printer once
+ * the lamp is recorded, so only complete paths are printed. If the printer
+ * falls behind, whole key presses are dropped and counted rather than
+ * blocking the translation.
+ */
+package phillockett65.Enigma;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class SignalTrace implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int KEY = 0xff;
+    private static final int LAMP = 0xfe;
+    private static final int NO_OFFSET = 0xff;
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String[] stages;
+    private final PrintStream out;
+
+    private final int[] events;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // Written by the recorder.
+    private final AtomicLong tail = new AtomicLong();   // Written by the printer.
+    private volatile long dropped = 0;                  // Key presses, written by the recorder.
+
+    private long write = 0;                             // Next slot of the current path.
+    private boolean skipping = false;                   // Current path is being dropped.
+
+    private final Thread printer;
+    private volatile boolean running = true;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor. Starts the background printer.
+     * @param stages names of the Mappers, indexed by the stage numbers 
+     * passed to stage().
+     * @param capacity of the ring buffer in events, rounded up to a power 
+     * of two.
+     * @param out stream to print the trace to.
+     */
+    public SignalTrace(String[] stages, int capacity, PrintStream out) {
+        this.stages = stages.clone();
+        this.out = out;
+
+        int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        events = new int[size];
+        mask = size - 1;
+
+        printer = new Thread(this::run, "SignalTrace");
+        printer.setDaemon(true);
+        printer.start();
+    }
+
+
+    /************************************************************************
+     * Recording support code, for use by a single translating thread.
+     */
+
+    private void record(int event) {
+        if (!skipping)
+            events[(int)(write++ & mask)] = event;
+    }
+
+    private static int pack(int stage, int offset, int input, int output) {
+        return (stage << 24) | (offset << 16) | (input << 8) | output;
+    }
+
+    /**
+     * Record the key at the start of a signal path, reserving room for the
+     * whole path. If there is not enough room the whole path is dropped.
+     * @param index of the key.
+     * @param stages number of stage() calls that will follow before lamp().
+     */
+    public void key(int index, int stages) {
+        final long h = head.get();
+        if (h + stages + 2 - tail.get() > events.length) {
+            skipping = true;
+            dropped = dropped + 1;
+            return;
+        }
+
+        skipping = false;
+        write = h;
+        record(pack(KEY, NO_OFFSET, index, 0));
+    }
+
+    /**
+     * Record the translation by a Mapper.
+     * @param stage number of the Mapper.
+     * @param input index.
+     * @param output index.
+     */
+    public void stage(int stage, int input, int output) {
+        record(pack(stage, NO_OFFSET, input, output));
+    }
+
+    /**
+     * Record the translation by a Rotor.
+     * @param stage number of the Rotor.
+     * @param offset of the Rotor.
+     * @param input index.
+     * @param output index.
+     */
+    public void stage(int stage, int offset, int input, int output) {
+        record(pack(stage, offset, input, output));
+    }
+
+    /**
+     * Record the lamp at the end of a signal path and make the path visible
+     * to the printer.
+     * @param index of the lamp.
+     */
+    public void lamp(int index) {
+        if (skipping) {
+            skipping = false;
+            return;
+        }
+
+        record(pack(LAMP, NO_OFFSET, index, 0));
+        head.lazySet(write);
+    }
+
+
+    /************************************************************************
+     * Printing support code.
+     */
+
+    public long getDropped() { return dropped; }
+
+    /**
+     * Format an event as the show option has always printed it.
+     * @param output to append to.
+     * @param event to format.
+     */
+    private void format(StringBuilder output, int event) {
+        final int stage = event >>> 24;
+        final int offset = (event >>> 16) & 0xff;
+        final String input = Mapper.indexToLetter((event >>> 8) & 0xff);
+        final String result = Mapper.indexToLetter(event & 0xff);
+
+        if (stage == KEY) {
+            output.append("Key: " + input + "  ");
+        } else if (stage == LAMP) {
+            output.append("Lamp: " + input + "\n");
+        } else {
+            output.append(stages[stage]);
+            if (offset != NO_OFFSET)
+                output.append("[" + Mapper.indexToLetter(offset) + "]");
+            output.append("(" + input + "->" + result + ")  ");
+        }
+    }
+
+    /**
+     * Print every event recorded so far.
+     * @param reported number of dropped events already reported.
+     * @return the number of dropped events now reported.
+     */
+    private long drain(long reported) {
+        final long h = head.get();
+        long t = tail.get();
+        final long lost = dropped;
+        if ((t == h) && (lost == reported))
+            return reported;
+
+        StringBuilder output = new StringBuilder();
+        for (; t < h; ++t)
+            format(output, events[(int)(t & mask)]);
+        tail.lazySet(t);
+
+        if (lost != reported)
+            output.append("[" + (lost - reported) + " key presses dropped]\n");
+
+        out.print(output);
+
+        return lost;
+    }
+
+    private void run() {
+        long reported = 0;
+        while (running) {
+            reported = drain(reported);
+            LockSupport.parkNanos(INTERVAL);
+        }
+        drain(reported);
+    }
+
+    /**
+     * Stop the background printer once everything recorded so far has been
+     * printed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(printer);
+        try {
+            printer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.flush();
+    }
+
+}
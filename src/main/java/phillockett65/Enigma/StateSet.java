@@ -0,0 +1,146 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StateSet is a class that holds a set of packed states, each a settings word
+ * and a plugboard word (0 for no plugs), in open addressing primitive arrays
+ * with linear probing, so adding and testing states does not allocate. It is
+ * not thread safe.
+ */
+package phillockett65.Enigma;
+
+import java.util.Arrays;
+
+public class StateSet {
+
+    private long[] states;
+    private long[] plugboards;
+    private boolean[] used;
+    private int mask;
+    private int size = 0;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    /**
+     * Constructor.
+     * @param expected number of states, used to size the arrays.
+     */
+    public StateSet(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2)
+            capacity <<= 1;
+
+        allocate(capacity);
+    }
+
+    public StateSet() { this(16); }
+
+    private void allocate(int capacity) {
+        states = new long[capacity];
+        plugboards = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Double the capacity and reinsert every state.
+     */
+    private void grow() {
+        final long[] oldStates = states;
+        final long[] oldPlugboards = plugboards;
+        final boolean[] oldUsed = used;
+
+        allocate(states.length * 2);
+        for (int i = 0; i < oldUsed.length; ++i)
+            if (oldUsed[i])
+                insert(oldStates[i], oldPlugboards[i]);
+    }
+
+
+    /************************************************************************
+     * Set support code.
+     */
+
+    /**
+     * Find the slot of a state, or the empty slot where it would go.
+     * @param state packed settings.
+     * @param plugboard packed plugboard.
+     * @return the slot index.
+     */
+    private int find(long state, long plugboard) {
+        int slot = (int)PackedState.hash(state, plugboard) & mask;
+        while (used[slot] && ((states[slot] != state) || (plugboards[slot] != plugboard)))
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void insert(long state, long plugboard) {
+        final int slot = find(state, plugboard);
+        used[slot] = true;
+        states[slot] = state;
+        plugboards[slot] = plugboard;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @param state packed settings.
+     * @param plugboard packed plugboard.
+     * @return true if the state is in the set.
+     */
+    public boolean contains(long state, long plugboard) { return used[find(state, plugboard)]; }
+    public boolean contains(long state) { return contains(state, 0); }
+
+    /**
+     * Add a state if it is not already present.
+     * @param state packed settings.
+     * @param plugboard packed plugboard.
+     * @return true if the state was added.
+     */
+    public boolean add(long state, long plugboard) {
+        final int slot = find(state, plugboard);
+        if (used[slot])
+            return false;
+
+        used[slot] = true;
+        states[slot] = state;
+        plugboards[slot] = plugboard;
+        if (++size * 2 > states.length)
+            grow();
+
+        return true;
+    }
+
+    public boolean add(long state) { return add(state, 0); }
+
+    /**
+     * Remove every state, keeping the capacity.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+}
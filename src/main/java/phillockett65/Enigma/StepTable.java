@@ -0,0 +1,195 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StepTable is a class that captures the stepping of the left, middle and
+ * right rotors, including the double step of the middle rotor, as a successor
+ * table over the 17,576 state indices used by CompiledTable. The stepping only
+ * depends on the notch points of the middle rotor and the turnover points of
+ * the right rotor. The successor table is decomposed into its cycles so that
+ * the state after any number of key presses can be found without simulating
+ * every step.
+ */
+package phillockett65.Enigma;
+
+public class StepTable {
+
+    private final int[] next;       // State following each state.
+    private final int[] tail;       // Steps from each state to its cycle.
+    private final int[] cycleId;    // Cycle reached from each state.
+    private final int[] cyclePos;   // Position in order[] of cycle states.
+    private final int[] order;      // All cycle states, cycle by cycle.
+    private final int[] cycleStart; // Start of each cycle in order[].
+    private final int[] cycleLength;
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    private static int inc(int index) { return index == 25 ? 0 : index + 1; }
+
+    /**
+     * Build the successor table using the same rules as Engine.advanceRotors().
+     * @param middle Rotor.
+     * @param right Rotor.
+     * @return the successor table.
+     */
+    private static int[] buildNext(Rotor middle, Rotor right) {
+        int[] output = new int[CompiledTable.STATES];
+
+        for (int state = 0; state < output.length; ++state) {
+            int l = CompiledTable.getLeft(state);
+            int m = CompiledTable.getMiddle(state);
+            int r = inc(CompiledTable.getRight(state));
+
+            if (middle.isNotchPoint(m)) {
+                m = inc(m);
+                l = inc(l);
+            }
+
+            if (right.isTurnoverPoint(r))
+                m = inc(m);
+
+            output[state] = CompiledTable.toState(l, m, r);
+        }
+
+        return output;
+    }
+
+    /**
+     * Constructor. Decomposes the successor table into cycles and the tails
+     * that lead into them.
+     * @param middle Rotor.
+     * @param right Rotor.
+     */
+    public StepTable(Rotor middle, Rotor right) {
+        final int count = CompiledTable.STATES;
+
+        next = buildNext(middle, right);
+        tail = new int[count];
+        cycleId = new int[count];
+        cyclePos = new int[count];
+        order = new int[count];
+
+        int[] start = new int[count];
+        int[] length = new int[count];
+        int[] path = new int[count];
+        int[] mark = new int[count];   // 0 unvisited, -1 on path, 1 done.
+        int cycles = 0;
+        int used = 0;
+
+        for (int state = 0; state < count; ++state) {
+            if (mark[state] != 0)
+                continue;
+
+            // Follow the successors until a known state is reached.
+            int depth = 0;
+            int s = state;
+            while (mark[s] == 0) {
+                mark[s] = -1;
+                path[depth++] = s;
+                s = next[s];
+            }
+
+            int end = depth;
+            if (mark[s] == -1) {
+                // Found a new cycle, it runs from s to the end of the path.
+                int first = depth - 1;
+                while (path[first] != s)
+                    --first;
+
+                start[cycles] = used;
+                length[cycles] = depth - first;
+                for (int i = first; i < depth; ++i) {
+                    final int c = path[i];
+                    tail[c] = 0;
+                    cycleId[c] = cycles;
+                    cyclePos[c] = used;
+                    order[used++] = c;
+                    mark[c] = 1;
+                }
+                ++cycles;
+                end = first;
+            }
+
+            // Everything else on the path is a tail leading into a cycle.
+            for (int i = end - 1; i >= 0; --i) {
+                final int t = path[i];
+                final int n = next[t];
+                tail[t] = tail[n] + 1;
+                cycleId[t] = cycleId[n];
+                mark[t] = 1;
+            }
+        }
+
+        cycleStart = new int[cycles];
+        cycleLength = new int[cycles];
+        System.arraycopy(start, 0, cycleStart, 0, cycles);
+        System.arraycopy(length, 0, cycleLength, 0, cycles);
+    }
+
+
+    /************************************************************************
+     * Getters support code.
+     */
+
+    /**
+     * @param state index of the current positions.
+     * @return the state index after the next key press.
+     */
+    public int next(int state) { return next[state]; }
+
+    /**
+     * Find the state after the given number of key presses. Any tail is
+     * walked (it is at most a few steps long), then the cycle is indexed
+     * directly.
+     * @param state index of the start positions.
+     * @param keys number of key presses, which must not be negative.
+     * @return the state index after the key presses.
+     * @throws IllegalArgumentException if keys is negative.
+     */
+    public int jump(int state, long keys) {
+        if (keys < 0)
+            throw new IllegalArgumentException("Negative key count: " + keys);
+
+        while ((keys > 0) && (tail[state] > 0)) {
+            state = next[state];
+            --keys;
+        }
+
+        if (keys == 0)
+            return state;
+
+        final int id = cycleId[state];
+        final int len = cycleLength[id];
+        final int pos = cyclePos[state] - cycleStart[id];
+
+        return order[cycleStart[id] + (int)((pos + keys % len) % len)];
+    }
+
+    /**
+     * @param state index of any positions.
+     * @return the length of the cycle of positions eventually repeated from
+     * the given state.
+     */
+    public int getPeriod(int state) { return cycleLength[cycleId[state]]; }
+
+}
@@ -0,0 +1,90 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TopList is a class that keeps the highest scoring Candidates offered by
+ * any number of threads. The score needed to enter the list is published
+ * through a volatile field so that most candidates can be rejected without
+ * taking the lock.
+ */
+package phillockett65.Enigma;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+public class TopList {
+
+    private final int capacity;
+    private final PriorityQueue<Candidate> queue;   // Lowest score at the head.
+    private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+
+    /**
+     * Constructor.
+     * @param capacity maximum number of Candidates kept.
+     */
+    public TopList(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        this.capacity = capacity;
+        queue = new PriorityQueue<Candidate>(capacity + 1);
+    }
+
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Check if a score could enter the list, without locking.
+     * @param score to check.
+     * @return true if a Candidate with this score should be offered.
+     */
+    public boolean isCandidate(double score) { return score > threshold; }
+
+    /**
+     * Add a Candidate if it scores high enough.
+     * @param candidate to add.
+     * @return true if the Candidate was kept.
+     */
+    public synchronized boolean offer(Candidate candidate) {
+        if (!isCandidate(candidate.getScore()))
+            return false;
+
+        queue.add(candidate);
+        if (queue.size() > capacity)
+            queue.poll();
+
+        if (queue.size() == capacity)
+            threshold = queue.peek().getScore();
+
+        return true;
+    }
+
+    /**
+     * @return the Candidates kept, highest score first.
+     */
+    public synchronized ArrayList<Candidate> getResults() {
+        ArrayList<Candidate> output = new ArrayList<Candidate>(queue);
+        Collections.sort(output, Collections.reverseOrder());
+
+        return output;
+    }
+
+}
@@ -0,0 +1,53 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TranslationEvent is the Java Flight Recorder event committed by the Engine
+ * for each bulk translation call, so a recording shows the batch sizes and
+ * the settings they were translated with.
+ */
+package phillockett65.Enigma;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("phillockett65.Enigma.Translation")
+@Label("Bulk Translation")
+@Category("Enigma")
+@Description("Batch of characters translated by an Engine")
+public class TranslationEvent extends jdk.jfr.Event {
+
+    @Label("Configuration Id")
+    @Description("Engine.getConfigurationId() of the settings used")
+    String configurationId;
+
+    @Label("Characters")
+    long characters;
+
+    @Label("Letters")
+    @Description("Characters that were letters, i.e. key presses")
+    long letters;
+
+    @Label("Compiled")
+    boolean compiled;
+
+}
@@ -0,0 +1,190 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TranslationSpliterator is a class that exposes the translation of a message
+ * by an Engine as a Spliterator of translated characters. Each split hands out
+ * an independent range that starts from its own copy of the Engine, jumped
+ * ahead by the number of letters that precede the range, so a parallel stream
+ * produces output identical to a sequential translation.
+ */
+package phillockett65.Enigma;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.StreamSupport;
+
+public class TranslationSpliterator implements Spliterator.OfInt {
+
+    private static final int MIN_SPLIT = 4096;
+    private static final int CHUNK = 1024;
+
+    private final Engine template;  // Read only, positioned at the message start.
+    private final CharSequence input;
+    private int index;
+    private final int fence;
+    private long keys;              // Letters between message start and index.
+
+    private Engine engine = null;   // Working copy, created on first use.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    private TranslationSpliterator(Engine template, CharSequence input, int index, int fence, long keys) {
+        this.template = template;
+        this.input = input;
+        this.index = index;
+        this.fence = fence;
+        this.keys = keys;
+    }
+
+    /**
+     * Constructor. The given Engine is not modified, but must not be changed
+     * while the Spliterator is in use.
+     * @param template Engine positioned at the start of the message.
+     * @param input message to translate.
+     */
+    public TranslationSpliterator(Engine template, CharSequence input) {
+        this(template, input, 0, input.length(), 0);
+    }
+
+    private static boolean isLetter(char c) {
+        return ((c >= 'A') && (c <= 'Z')) || ((c >= 'a') && (c <= 'z'));
+    }
+
+    /**
+     * Count the letters, i.e. the key presses, in a range of a message.
+     * @param input message.
+     * @param from index of first character.
+     * @param to index after the last character.
+     * @return the number of letters.
+     */
+    public static long countLetters(CharSequence input, int from, int to) {
+        long count = 0;
+        for (int i = from; i < to; ++i)
+            if (isLetter(input.charAt(i)))
+                ++count;
+
+        return count;
+    }
+
+    /**
+     * @return the working Engine, creating it if necessary.
+     */
+    private Engine getEngine() {
+        if (engine == null) {
+            engine = template.copy();
+            engine.setShow(false);
+            engine.jump(keys);
+        }
+
+        return engine;
+    }
+
+
+    /************************************************************************
+     * Spliterator support code.
+     */
+
+    @Override
+    public OfInt trySplit() {
+        if (engine != null)
+            return null;
+
+        final int mid = (index + fence) >>> 1;
+        if (mid - index < MIN_SPLIT)
+            return null;
+
+        TranslationSpliterator prefix = new TranslationSpliterator(template, input, index, mid, keys);
+        keys += countLetters(input, index, mid);
+        index = mid;
+
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (index >= fence)
+            return false;
+
+        char[] buffer = { input.charAt(index++) };
+        getEngine().translate(buffer, 0, buffer, 0, 1);
+        action.accept(buffer[0]);
+
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        if (index >= fence)
+            return;
+
+        final Engine engine = getEngine();
+        char[] buffer = new char[CHUNK];
+
+        while (index < fence) {
+            final int length = Math.min(CHUNK, fence - index);
+            for (int i = 0; i < length; ++i)
+                buffer[i] = input.charAt(index + i);
+
+            engine.translate(buffer, 0, buffer, 0, length);
+            index += length;
+
+            for (int i = 0; i < length; ++i)
+                action.accept(buffer[i]);
+        }
+    }
+
+    @Override
+    public long estimateSize() { return fence - index; }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+
+
+    /************************************************************************
+     * Support code for static public interface.
+     */
+
+    /**
+     * Translate a message using a parallel stream then move the given Engine
+     * to the positions reached at the end of the message. The result is
+     * identical to the sequential Engine.translate().
+     * @param engine positioned at the start of the message.
+     * @param input message to translate.
+     * @return the translated message.
+     */
+    public static String translateParallel(Engine engine, CharSequence input) {
+        engine.getStepTable();      // Build it once for every copy to share.
+
+        final String output = StreamSupport.intStream(new TranslationSpliterator(engine, input), true)
+            .collect(StringBuilder::new, (sb, c) -> sb.append((char)c), StringBuilder::append)
+            .toString();
+
+        engine.jump(countLetters(input, 0, input.length()));
+
+        return output;
+    }
+
+}
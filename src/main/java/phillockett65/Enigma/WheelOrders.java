@@ -0,0 +1,110 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WheelOrders is a class of static support code shared by the cryptanalysis
+ * engines. It enumerates the wheel orders that can be made from a list of
+ * Rotors and builds 3 wheel Engines for them.
+ */
+package phillockett65.Enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WheelOrders {
+
+    public static final String[] DEFAULT_WHEELS = { "I", "II", "III", "IV", "V" };
+    public static final String DEFAULT_REFLECTOR = "Reflector B";
+
+    /**
+     * Enumerate every ordered choice of 3 different Rotors.
+     * @param ids of the available Rotors, which must be in the Catalogue.
+     * @return list of wheel orders, each holding the left, middle and right 
+     * Rotor ids.
+     * @throws IllegalArgumentException if an id is not in the Catalogue.
+     */
+    public static ArrayList<String[]> orders(List<String> ids) {
+        for (String id : ids)
+            if (Catalogue.getRotor(id) == null)
+                throw new IllegalArgumentException("Unknown rotor: " + id);
+
+        ArrayList<String[]> output = new ArrayList<String[]>();
+        final int count = ids.size();
+        for (int l = 0; l < count; ++l)
+            for (int m = 0; m < count; ++m)
+                for (int r = 0; r < count; ++r)
+                    if ((l != m) && (l != r) && (m != r))
+                        output.add(new String[] { ids.get(l), ids.get(m), ids.get(r) });
+
+        return output;
+    }
+
+    /**
+     * Build a 3 wheel Engine.
+     * @param plugboardMap map of the plugboard connections.
+     * @param reflector id of the Reflector.
+     * @param order left, middle and right Rotor ids.
+     * @param rings left, middle and right ring setting indices.
+     * @return the new Engine with all positions at 0.
+     * @throws IllegalArgumentException if the reflector is not known.
+     */
+    public static Engine buildEngine(int[] plugboardMap, String reflector, String[] order, int[] rings) {
+        RotorData data = Catalogue.getReflector(reflector);
+        if (data == null)
+            throw new IllegalArgumentException("Unknown reflector: " + reflector);
+
+        return buildEngine(plugboardMap, data.getMap(), order, rings);
+    }
+
+    /**
+     * Build a 3 wheel Engine.
+     * @param plugboardMap map of the plugboard connections.
+     * @param reflectorMap map of the reflector connections.
+     * @param order left, middle and right Rotor ids.
+     * @param rings left, middle and right ring setting indices.
+     * @return the new Engine with all positions at 0.
+     */
+    public static Engine buildEngine(int[] plugboardMap, int[] reflectorMap, String[] order, int[] rings) {
+        // The fourth wheel is not used but must be a valid Rotor.
+        final String[] wheels = { order[0], order[0], order[1], order[2] };
+        final int[] settings = { 0, rings[0], rings[1], rings[2] };
+
+        return new Engine(plugboardMap, reflectorMap, wheels, settings, false);
+    }
+
+    /**
+     * Format a wheel order for display.
+     * @param order left, middle and right Rotor ids.
+     * @return the ids separated by spaces.
+     */
+    public static String toString(String[] order) { return String.join(" ", order); }
+
+    /**
+     * Format a state index as the left, middle and right rotor letters.
+     * @param state index of the positions.
+     * @return the positions as letters, e.g. "ADU".
+     */
+    public static String positionsToString(int state) {
+        return Mapper.indexToLetter(CompiledTable.getLeft(state))
+            + Mapper.indexToLetter(CompiledTable.getMiddle(state))
+            + Mapper.indexToLetter(CompiledTable.getRight(state));
+    }
+
+}
@@ -0,0 +1,429 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ZygalskiSheets is a class that implements Zygalski's perforated sheets.
+ * With the indicator procedure of late 1938 the ground setting is sent in
+ * clear and the message key is typed twice at it. A "female" occurs when the
+ * 1st and 4th (2nd and 5th, 3rd and 6th) letters of the encrypted indicator
+ * are the same, which is only possible at positions where A4.A1 (A5.A2, 
+ * A6.A3) has a fixed point. As with the paper sheets, the middle rotor is
+ * assumed not to move during the indicator, and females that would move it
+ * are ignored. For each wheel order, pair of letters and left
+ * rotor position, a sheet holds one long per middle rotor position with a bit
+ * for each right rotor position where a female is possible. Sheets are built
+ * from the Rotor wiring, in parallel, and can be cached on disk. The ring
+ * settings of a day are found by AND-ing the sheets of each female, shifted
+ * by its ground setting.
+ */
+package phillockett65.Enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class ZygalskiSheets {
+
+    public static final int MAGIC = 0x5A594753;    // "ZYGS".
+    public static final int VERSION = 1;
+
+    private static final long ROW = (1L << 26) - 1;
+    private static final int SHEET = 26 * 26;       // Rows per wheel order and pair.
+
+    private final String reflector;     // Description of the reflector.
+    private final List<String> wheels;
+    private final ArrayList<String[]> orders;
+    private final LongBuffer rows;      // Indexed by order, pair, left, middle.
+
+
+    /************************************************************************
+     * Initialization support code.
+     */
+
+    private ZygalskiSheets(String reflector, List<String> wheels, LongBuffer rows) {
+        this.reflector = reflector;
+        this.wheels = wheels;
+        this.orders = WheelOrders.orders(wheels);
+        this.rows = rows;
+    }
+
+    private static int index(int order, int pair, int left, int middle) {
+        return ((order * 3 + pair) * 26 + left) * 26 + middle;
+    }
+
+    private static int mod(int value) { return ((value % 26) + 26) % 26; }
+
+    /**
+     * Build the sheets of a wheel order. As with the paper sheets, only the
+     * right rotor moves during the 6 key presses. Bit (26 - right) % 26 of
+     * each row marks a female at the right rotor position, so that the bits
+     * can be shifted into ring settings by rotation.
+     * @param reflectorMap map of the reflector connections.
+     * @param order left, middle and right Rotor ids.
+     * @param orderIndex index of the wheel order.
+     * @param output for the rows.
+     */
+    private static void build(int[] reflectorMap, String[] order, int orderIndex, long[] output) {
+        final Engine engine = WheelOrders.buildEngine(Mapper.initThroughMap(26), reflectorMap, order, new int[3]);
+        final CompiledTable table = CompiledTable.build(engine);
+        int[] states = new int[6];
+
+        for (int start = 0; start < CompiledTable.STATES; ++start) {
+            final int left = CompiledTable.getLeft(start);
+            final int middle = CompiledTable.getMiddle(start);
+            final int right = CompiledTable.getRight(start);
+            for (int i = 0; i < 6; ++i)
+                states[i] = CompiledTable.toState(left, middle, (right + i + 1) % 26);
+
+            final long bit = 1L << mod(-right);
+            for (int pair = 0; pair < 3; ++pair)
+                for (int x = 0; x < 26; ++x)
+                    if (table.translate(states[pair + 3], table.translate(states[pair], x)) == x) {
+                        output[index(orderIndex, pair, left, middle)] |= bit;
+                        break;
+                    }
+        }
+    }
+
+    /**
+     * Build the sheets for every wheel order, with the wheel orders handled
+     * in parallel.
+     * @param reflector description of the reflector, e.g. its id.
+     * @param reflectorMap map of the reflector connections.
+     * @param wheels ids of the Rotors available.
+     * @return the new ZygalskiSheets.
+     */
+    public static ZygalskiSheets build(String reflector, int[] reflectorMap, List<String> wheels) {
+        final ArrayList<String[]> orders = WheelOrders.orders(wheels);
+        final long[] rows = new long[orders.size() * 3 * SHEET];
+
+        IntStream.range(0, orders.size()).parallel()
+            .forEach(i -> build(reflectorMap, orders.get(i), i, rows));
+
+        return new ZygalskiSheets(reflector, wheels, LongBuffer.wrap(rows));
+    }
+
+
+    /************************************************************************
+     * File support code.
+     */
+
+    /*
+     * File layout, big endian: MAGIC, VERSION, the length of the description
+     * followed by the description in UTF-8 ("reflector;wheels"), the number
+     * of rows, then the rows.
+     */
+
+    private static String describe(String reflector, List<String> wheels) {
+        return reflector + ";" + String.join(" ", wheels);
+    }
+
+    /**
+     * Save the sheets.
+     * @param file to create or replace.
+     * @throws IOException if the file can not be written.
+     */
+    public void write(Path file) throws IOException {
+        final byte[] description = describe(reflector, wheels).getBytes(StandardCharsets.UTF_8);
+        final int count = rows.capacity();
+
+        ByteBuffer buffer = ByteBuffer.allocate(16 + description.length + 8 * count);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(description.length).put(description);
+        buffer.putInt(count);
+        for (int i = 0; i < count; ++i)
+            buffer.putLong(rows.get(i));
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Map sheets saved by write().
+     * @param file of the sheets.
+     * @return the ZygalskiSheets read from the file.
+     * @throws IOException if the file can not be read or is not valid.
+     */
+    public static ZygalskiSheets load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION))
+                throw new IOException("Not a Zygalski sheet file: " + file);
+
+            byte[] description = new byte[buffer.getInt()];
+            buffer.get(description);
+            final String[] fields = new String(description, StandardCharsets.UTF_8).split(";", 2);
+            final int count = buffer.getInt();
+
+            ByteBuffer part = buffer.slice();
+            part.limit(8 * count);
+
+            return new ZygalskiSheets(fields[0], Mapper.splitWords(fields[1]), part.asLongBuffer());
+        }
+    }
+
+    /**
+     * Load the sheets from a cache file if it holds the same reflector and
+     * Rotors, otherwise build them and save them to the file.
+     * @param file used as the cache.
+     * @param reflector description of the reflector, e.g. its id.
+     * @param reflectorMap map of the reflector connections.
+     * @param wheels ids of the Rotors available.
+     * @return the ZygalskiSheets.
+     * @throws IOException if the file can not be written.
+     */
+    public static ZygalskiSheets get(Path file, String reflector, int[] reflectorMap, List<String> wheels) throws IOException {
+        if (Files.exists(file)) {
+            try {
+                ZygalskiSheets sheets = load(file);
+                if (describe(sheets.reflector, sheets.wheels).equals(describe(reflector, wheels)))
+                    return sheets;
+            } catch (IOException e) {
+                // Rebuild below.
+            }
+        }
+
+        ZygalskiSheets sheets = build(reflector, reflectorMap, wheels);
+        sheets.write(file);
+
+        return sheets;
+    }
+
+
+    /************************************************************************
+     * Search support code.
+     */
+
+    /**
+     * Find the females of a day's traffic.
+     * @param indicators 9 letter indicators, the ground setting followed by
+     * the encrypted doubled message key.
+     * @return the females, each as the left, middle and right ground 
+     * setting and the pair of letters (0 to 2).
+     * @throws IllegalArgumentException if an indicator is not 9 letters.
+     */
+    public static ArrayList<int[]> getFemales(List<String> indicators) {
+        ArrayList<int[]> output = new ArrayList<int[]>();
+        for (String indicator : indicators) {
+            final int[] letters = Mapper.lettersToIndices(indicator);
+            if (letters.length != 9)
+                throw new IllegalArgumentException("Invalid indicator: " + indicator);
+
+            for (int pair = 0; pair < 3; ++pair)
+                if (letters[3 + pair] == letters[6 + pair])
+                    output.add(new int[] { letters[0], letters[1], letters[2], pair });
+        }
+
+        return output;
+    }
+
+    private static long rotate(long row, int distance) {
+        return ((row << distance) | (row >>> (26 - distance))) & ROW;
+    }
+
+    /**
+     * Stack the sheets of every female for a wheel order. The position of
+     * each female is its ground setting less the ring settings, so each
+     * sheet is shifted by the ground setting and the surviving bits give the
+     * ring settings.
+     * @param orderIndex index of the wheel order.
+     * @param females found by getFemales().
+     * @return the state indices of the left, middle and right ring settings
+     * consistent with every female that does not move the middle rotor.
+     */
+    public int[] search(int orderIndex, List<int[]> females) {
+        // Skip females whose ground setting moves the middle rotor, as the
+        // sheets do not cover them.
+        final String[] order = orders.get(orderIndex);
+        final StepTable steps = new StepTable(new Rotor(Catalogue.getRotor(order[1]), 0),
+            new Rotor(Catalogue.getRotor(order[2]), 0));
+        ArrayList<int[]> steady = new ArrayList<int[]>();
+        for (int[] female : females) {
+            final int ground = CompiledTable.toState(female[0], female[1], female[2]);
+            if ((steps.jump(ground, 6) / 26) == (ground / 26))
+                steady.add(female);
+        }
+
+        int[] output = new int[CompiledTable.STATES];
+        int count = 0;
+        long[] stack = new long[26];
+
+        for (int ringL = 0; ringL < 26; ++ringL) {
+            Arrays.fill(stack, ROW);
+            for (int[] female : steady) {
+                final int base = index(orderIndex, female[3], mod(female[0] - ringL), 0);
+                for (int ringM = 0; ringM < 26; ++ringM)
+                    stack[ringM] &= rotate(rows.get(base + mod(female[1] - ringM)), female[2]);
+            }
+
+            for (int ringM = 0; ringM < 26; ++ringM)
+                for (long bits = stack[ringM]; bits != 0; bits &= bits - 1)
+                    output[count++] = CompiledTable.toState(ringL, ringM, Long.numberOfTrailingZeros(bits));
+        }
+
+        return Arrays.copyOf(output, count);
+    }
+
+    public String getReflector() { return reflector; }
+    public List<String> getWheels() { return wheels; }
+    public ArrayList<String[]> getOrders() { return orders; }
+
+    /**
+     * Generate the indicators of a day's traffic, using random ground
+     * settings and message keys.
+     * @param dayKey settings of the day.
+     * @param count number of messages.
+     * @param random source of ground settings and message keys.
+     * @return the 9 letter indicators.
+     */
+    public static ArrayList<String> generateIndicators(Configuration dayKey, int count, Random random) {
+        ArrayList<String> output = new ArrayList<String>(count);
+        char[] indicator = new char[9];
+
+        for (int i = 0; i < count; ++i) {
+            Engine engine = dayKey.buildEngine();
+            for (int j = 0; j < 3; ++j) {
+                final int ground = random.nextInt(26);
+                engine.setPosition(Engine.LEFT + j, ground);
+                indicator[j] = (char)Mapper.indexToChar(ground);
+                indicator[j + 3] = indicator[j + 6] = (char)Mapper.indexToChar(random.nextInt(26));
+            }
+
+            engine.translate(indicator, 3, indicator, 3, 6);
+            output.add(new String(indicator));
+        }
+
+        return output;
+    }
+
+
+
+    /************************************************************************
+     * Support code for command line parsing.
+     */
+
+    private static void usage() {
+        System.err.println("Usage: ZygalskiSheets [options] file indicator...");
+        System.err.println("       ZygalskiSheets [options] file -d day [-m count]");
+        System.err.println("Finds the wheel order and ring settings from the females of a day's indicators.");
+        System.err.println("The sheets are cached in file, which is built if needed.");
+        System.err.println("  -r id          reflector (default \"" + WheelOrders.DEFAULT_REFLECTOR + "\")");
+        System.err.println("  -p \"AB CD ..\"  reconfigurable reflector pairs");
+        System.err.println("  -w \"I II III\"  rotors available (default \"" + String.join(" ", WheelOrders.DEFAULT_WHEELS) + "\")");
+        System.err.println("  -d day         generate indicators for a day of key list 649");
+        System.err.println("  -m count       number of messages generated (default 200)");
+    }
+
+    /**
+     * Entry point.
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        String reflector = WheelOrders.DEFAULT_REFLECTOR;
+        String pairs = null;
+        List<String> wheels = Arrays.asList(WheelOrders.DEFAULT_WHEELS);
+        int day = -1;
+        int count = 200;
+        SettingsData settings = null;
+        ArrayList<String> values = new ArrayList<String>();
+
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-r": reflector = args[++i]; break;
+                case "-p": pairs = args[++i]; break;
+                case "-w": wheels = Mapper.splitWords(args[++i].trim()); break;
+                case "-d": day = Integer.parseInt(args[++i]); break;
+                case "-m": count = Integer.parseInt(args[++i]); break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    values.add(arg);
+                }
+            }
+
+            if (values.isEmpty())
+                throw new IllegalArgumentException("Expected sheet file");
+
+            if (day != -1) {
+                settings = KeyList.getSettings(day);
+                if (settings == null)
+                    throw new IllegalArgumentException("No settings for day " + day);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        try {
+            List<String> indicators = values.subList(1, values.size());
+            if (settings != null) {
+                Configuration config = settings.getConfiguration(0);
+                System.out.println("Day " + day + ": " + config.encode());
+                indicators = generateIndicators(config, count, new Random(day));
+                pairs = settings.getReflector();
+            }
+
+            Configuration config = new Configuration();
+            config.setReflectorChoice(reflector);
+            if (pairs != null)
+                config.setReflectorPairs(pairs);
+
+            final String description = (pairs != null) ? pairs : reflector;
+            ZygalskiSheets sheets = get(Paths.get(values.get(0)), description, config.getReflectorMap(), wheels);
+
+            ArrayList<int[]> females = getFemales(indicators);
+            System.out.println(females.size() + " females");
+
+            final ArrayList<String[]> orders = sheets.getOrders();
+            for (int i = 0; i < orders.size(); ++i)
+                for (int rings : sheets.search(i, females))
+                    System.out.println(WheelOrders.toString(orders.get(i)) + " rings=" + WheelOrders.positionsToString(rings));
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PipelineCompilerTest checks that an Engine using a Pipeline generated by
+ * PipelineCompiler translates exactly as a plain Engine does, for every day
+ * of the KeyList and for a 4-wheel configuration. The message is long enough
+ * to step every rotor through its notches, including the double step.
+ */
+package phillockett65.Enigma;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PipelineCompilerTest {
+
+    private static final String FOUR_WHEEL = "reflector=Reflector C Thin;wheels=Gamma VIII VI V;"
+        + "rings=A B C D;offsets=Z Y X W;plugs=AB CD EF GH IJ KL MN OP QR ST UV WX YZ";
+
+    private static final int LENGTH = 2000;
+
+    /**
+     * Build a deterministic message of upper and lower case letters with
+     * spaces and punctuation mixed in.
+     * @return the message.
+     */
+    private static String buildMessage() {
+        StringBuilder output = new StringBuilder(LENGTH);
+        for (int i = 0; i < LENGTH; ++i) {
+            final int c = (i * 7 + i / 26) % 26;
+            if (i % 11 == 10)
+                output.append(' ');
+            else if (i % 37 == 36)
+                output.append('.');
+            else if (i % 3 == 0)
+                output.append((char)('a' + c));
+            else
+                output.append((char)('A' + c));
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Translate the message with a plain Engine and with one using a
+     * generated Pipeline, both as a bulk translation and a letter at a time,
+     * and check that all three translations are the same.
+     * @param config to test.
+     * @param message to translate.
+     */
+    private static void check(Configuration config, String message) {
+        final String name = config.encode();
+
+        Engine plain = config.buildEngine();
+        char[] expected = new char[message.length()];
+        plain.translate(message, expected, 0);
+
+        Engine specialized = config.buildEngine();
+        specialized.setPipeline(PipelineCompiler.compile(config.buildSpec()));
+        assertTrue(specialized.isSpecialized(), name);
+        char[] bulk = new char[message.length()];
+        specialized.translate(message, bulk, 0);
+        assertEquals(new String(expected), new String(bulk), name);
+
+        Engine single = config.buildEngine();
+        single.setPipeline(PipelineCompiler.compile(config.buildSpec()));
+        StringBuilder letters = new StringBuilder();
+        for (int i = 0; i < message.length(); ++i) {
+            final char c = Character.toUpperCase(message.charAt(i));
+            if ((c >= 'A') && (c <= 'Z'))
+                letters.append((char)(single.translate(c - 'A') + 'A'));
+        }
+        assertEquals(new String(expected).replaceAll("[^A-Z]", ""), letters.toString(), name);
+    }
+
+    @Test
+    public void keyListDaysMatchEngine() {
+        final String message = buildMessage();
+
+        int count = 0;
+        for (int day : KeyList.getDays()) {
+            SettingsData settings = KeyList.getSettings(day);
+            for (int quarter = 0; quarter < 4; ++quarter) {
+                check(settings.getConfiguration(quarter), message);
+                ++count;
+            }
+        }
+        assertTrue(count > 0, "No KeyList days");
+    }
+
+    @Test
+    public void fourWheelMatchesEngine() {
+        Configuration config = Configuration.decode(FOUR_WHEEL);
+        assertTrue(config.isFourthWheel(), "Not a 4-wheel configuration");
+
+        check(config, buildMessage());
+    }
+
+}
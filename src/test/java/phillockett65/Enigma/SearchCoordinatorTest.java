@@ -0,0 +1,146 @@
+/*  Enigma2 - a JavaFX based enigma machine simulator.
+ *
+ *  Copyright 2024 Philip Lockett.
+ *
+ *  This file is part of Enigma2.
+ *
+ *  Enigma2 is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Enigma2 is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Enigma2.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SearchCoordinatorTest runs a distributed key search on the loopback
+ * interface with two SearchWorkers and a client that stalls holding a range,
+ * and checks that the lease expires, the stalled range is reassigned and the
+ * results match a local KeySearch.
+ */
+package phillockett65.Enigma;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class SearchCoordinatorTest {
+
+    private static final String PLAIN_TEXT = "DASOBERKOMMANDODERWEHRMACHTGIBTBEKANNTXAUFDERHALBINSEL"
+        + "KRIMWURDENDIESOWJETISCHENKRAEFTEINSCHWEREKAEMPFE";
+
+    private static String encipher() {
+        Configuration config = Configuration.decode("reflector=Reflector B;wheels=II I III;rings=A A A;offsets=K D R;plugs=");
+        char[] output = new char[PLAIN_TEXT.length()];
+        config.buildEngine().translate(PLAIN_TEXT, output, 0);
+
+        return new String(output);
+    }
+
+    private static KeySearch buildSearch(String cipherText) {
+        KeySpace space = new KeySpace(Arrays.asList("Reflector B"), new ArrayList<String>(),
+            Arrays.asList("I", "II", "III"), 0);
+
+        return new KeySearch(cipherText, space, KeyScorer.coincidence(), 3);
+    }
+
+    private static void startDaemon(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Connect a client that takes a range of work then stalls without
+     * sending anything, holding the range until its lease expires.
+     * @param port of the coordinator.
+     * @param holding counted down once the client has been given a range.
+     */
+    private static void runStalledClient(int port, CountDownLatch holding) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter writer = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+            writer.println("HELLO");
+            reader.readLine();          // JOB.
+            writer.println("NEXT");
+            if (reader.readLine().startsWith("WORK"))
+                holding.countDown();
+
+            // Send nothing more, reading until the coordinator closes us.
+            while (reader.readLine() != null)
+                ;
+        } catch (IOException e) {
+            // Closed by the coordinator.
+        }
+    }
+
+    private static void runWorker(int port) {
+        try {
+            new SearchWorker(InetAddress.getLoopbackAddress().getHostAddress(), port, KeyScorer.coincidence()).run();
+        } catch (IOException e) {
+            // The coordinator has closed.
+        }
+    }
+
+    @Test
+    @Timeout(120)
+    public void stalledRangeIsReassigned() throws Exception {
+        final String cipherText = encipher();
+        final List<String> expected = toStrings(buildSearch(cipherText).run());
+
+        KeySearch search = buildSearch(cipherText);
+        final long total = search.getSpace().getUnitCount();
+        SearchCoordinator coordinator = new SearchCoordinator(search, InetAddress.getLoopbackAddress(), 0, 1);
+        coordinator.setLease(500);
+        final int port = coordinator.getPort();
+
+        // The stalled client is given a range before the workers start.
+        final CountDownLatch holding = new CountDownLatch(1);
+        startDaemon(() -> runStalledClient(port, holding));
+        startDaemon(() -> {
+            try {
+                holding.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            startDaemon(() -> runWorker(port));
+            startDaemon(() -> runWorker(port));
+        });
+
+        final List<String> found = toStrings(coordinator.run());
+        coordinator.close();
+
+        assertEquals(0, holding.getCount(), "stalled client was given a range");
+        assertEquals(total, coordinator.getDoneCount());
+        assertEquals(expected, found);
+    }
+
+    private static List<String> toStrings(List<Candidate> candidates) {
+        List<String> output = new ArrayList<String>();
+        for (Candidate candidate : candidates)
+            output.add(candidate.toString());
+
+        return output;
+    }
+
+}